@@ -1,15 +1,39 @@
 import engine.GameEngine;
+import engine.Scenario;
 import ui.GameWindow;
+import ui.StartupMetrics;
 
 import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.nio.file.Paths;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        // 启动计时（-Dnavalwar.startup=true 时在资源就绪后的第一帧打印汇总）
+        StartupMetrics.mark("main");
+        // -Dnavalwar.scenario=<file> 指定场景（世界尺寸、生成规则、武器射速），默认 Scenario.DEFAULT
+        String file = System.getProperty("navalwar.scenario");
+        Scenario scenario = file == null ? Scenario.DEFAULT : Scenario.load(Paths.get(file));
         SwingUtilities.invokeLater(() -> {
-            GameEngine engine = new GameEngine(800, 600);
-            // 创建并显示可视化窗口（窗口内部启动定时器并驱动 engine）
-            GameWindow gw = new GameWindow(engine, 800, 600);
+            GameEngine engine = new GameEngine(scenario, System.nanoTime());
+            // -Dnavalwar.record=<file> 录制本局输入（关闭窗口时写入校验信息），可用 sim.ReplayRunner 重放
+            String record = System.getProperty("navalwar.record");
+            if (record != null){
+                try {
+                    engine.startRecording(Paths.get(record));
+                } catch (IOException e){
+                    System.err.println("cannot record to " + record + ": " + e);
+                }
+            }
+            StartupMetrics.mark("engine");
+            // 创建并显示可视化窗口（窗口内部的定时器只负责重绘）；世界比视口宽时镜头跟随军舰
+            // -Dnavalwar.view.width=<px> 设置视口宽度（默认 800，不超过世界宽度）
+            int viewWidth = Math.min(scenario.worldWidth, Integer.getInteger("navalwar.view.width", 800));
+            GameWindow gw = new GameWindow(engine, viewWidth, scenario.worldHeight);
+            StartupMetrics.mark("window");
             gw.setVisible(true);
+            StartupMetrics.mark("visible");
+            // 启动引擎自己的模拟线程（固定步长）
             engine.start();
         });
     }
@@ -0,0 +1,179 @@
+package bench;
+
+import engine.FrameSnapshot;
+import engine.GameEngine;
+import engine.Scenario;
+import entities.Missile;
+import sim.HeadlessRunner;
+import ui.Assets;
+import ui.SceneRenderer;
+import ui.SpriteCache;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+/**
+ * 每 tick 分配预算检查：在几种种群规模下预热后测量 ops 次，用 com.sun.management.ThreadMXBean
+ * 统计当前线程在全部测量操作中的分配字节数，超过「预算 × ops + ALLOWANCE」即失败（进程以状态码 1 退出），
+ * 用于防止热路径重新引入分配。每隔几百个 tick 才发生一次的分配（波次、HUD 重新栅格化等）同样计入平均值。
+ * 预热以 warm 次为一轮，某一轮的分配不超过 ALLOWANCE 即结束（最多 WARM_PASSES 轮）：缓冲扩容与 C2 编译后的
+ * 反优化（逃逸分析消除的对象被重新分配）这类一次性分配落在预热中；ALLOWANCE 只有几 KB，
+ * 每次操作分配一个最小的对象（16 字节）也会使零预算的项失败。
+ * 覆盖：
+ *  - tick       : 自动驾驶（含导弹）下的完整 GameEngine.tick(16)，种群由场景维持在 n，并订阅事件
+ *  - tick.swept : 同上，步长 64ms（长步长的扫掠碰撞与闭式推进路径）
+ *  - missile    : n 艘潜艇 + 256 枚导弹，逐枚调用 Missile.update(16)（每枚一次最近邻查询）
+ *  - explosion  : 登记并结算爆炸（requestExplosion + resolveExplosions，创建爆炸与范围伤害）
+ *  - paint      : 无头 SceneRenderer.render 整帧绘制到 BufferedImage（与被动路径 paintComponent 相同），
+ *                 两帧之间推进一个 tick，tick 不计入
+ * 稳态应为零分配，预算远小于“每实体每 tick 一个对象”的量级。
+ * 用法：java -Djava.awt.headless=true bench.AllocationBudget [sizes] [warm] [ops]
+ *  - sizes : 潜艇数量，逗号分隔，默认 10,1000,10000
+ *  - warm  : 每轮预热次数，默认 1000；ops : 测量次数，默认 2000（默认参数在单核上约 6 分钟）
+ */
+public final class AllocationBudget {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final int W = 800, H = 600;
+    private static final long SEED = 12345L;
+    private static final int SALVO = 256;
+    private static final long ALLOWANCE = 4 * 1024; // 每项测量允许的一次性分配（字节），也是预热结束的条件
+    private static final int WARM_PASSES = 4;
+
+    // 各项预算（B/op）
+    private static final double TICK_BUDGET = 64, MISSILE_BUDGET = 0, EXPLOSION_BUDGET = 16, PAINT_BUDGET = 128;
+
+    private AllocationBudget(){}
+
+    public static void main(String[] args){
+        String[] parts = (args.length > 0 ? args[0] : "10,1000,10000").split(",");
+        int warm = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int ops = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        if (!THREADS.isThreadAllocatedMemorySupported()){
+            System.err.println("thread allocation accounting not supported by this JVM");
+            System.exit(2);
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        int failures = 0;
+        for (String p : parts){
+            int n = Integer.parseInt(p.trim());
+            failures += check("tick", n, tick(n, 16, warm, ops), ops, TICK_BUDGET);
+            failures += check("tick.swept", n, tick(n, 64, warm, ops), ops, TICK_BUDGET);
+            failures += check("missile", n, missile(n, warm, ops), ops, MISSILE_BUDGET);
+            failures += check("explosion", n, explosion(n, warm, ops), ops, EXPLOSION_BUDGET);
+            failures += check("paint", n, paint(n, warm, ops), ops, PAINT_BUDGET);
+        }
+        if (failures > 0){
+            System.out.println(failures + " allocation budget(s) exceeded");
+            System.exit(1);
+        }
+        System.out.println("all allocation budgets met");
+    }
+
+    // bytes 为 ops 次操作的总分配字节数
+    private static int check(String name, int n, long bytes, int ops, double budget){
+        boolean ok = bytes <= budget * ops + ALLOWANCE;
+        System.out.printf("%-12s n=%-7d %10.1f B/op  total=%9d B  budget=%6.0f  %s%n",
+                name, n, (double) bytes / ops, bytes, budget, ok ? "OK" : "OVER");
+        return ok ? 0 : 1;
+    }
+
+    /**
+     * 预热（每轮 warm 次，直到某一轮的分配不超过 ALLOWANCE，最多 WARM_PASSES 轮）后测量 ops 次，
+     * 返回测量期间的总分配字节数。每次操作前先执行 setup（参数为操作序号，可为 null），setup 不计入。
+     */
+    private static long measure(IntConsumer setup, Runnable op, int warm, int ops){
+        int i = 0;
+        for (int pass = 0; pass < WARM_PASSES; pass++){
+            long bytes = run(setup, op, i, warm);
+            i += warm;
+            if (bytes <= ALLOWANCE) break;
+        }
+        return run(setup, op, i, ops);
+    }
+
+    // 执行序号 [from, from + count) 的操作，返回 op 的总分配字节数
+    private static long run(IntConsumer setup, Runnable op, int from, int count){
+        long tid = Thread.currentThread().getId();
+        long bytes = 0;
+        for (int i = from; i < from + count; i++){
+            if (setup != null) setup.accept(i);
+            long b0 = THREADS.getThreadAllocatedBytes(tid);
+            op.run();
+            bytes += THREADS.getThreadAllocatedBytes(tid) - b0;
+        }
+        return bytes;
+    }
+
+    // 场景维持 n 艘潜艇，自动驾驶投弹并发射导弹
+    private static GameEngine autopiloted(int n){
+        Scenario sc = Scenario.builder().world(W, H).initialPopulation(n).targetPopulation(n, Math.max(1, n / 100))
+                .autopilotMissiles(true).build();
+        GameEngine engine = new GameEngine(sc, SEED);
+        engine.setPreTickHook(t -> HeadlessRunner.autopilot(engine));
+        engine.startManual();
+        return engine;
+    }
+
+    // 完整 tick，订阅事件使事件日志也参与
+    static long tick(int n, long dt, int warm, int ops){
+        GameEngine engine = autopiloted(n);
+        long[] events = new long[1];
+        engine.addEventListener(ev -> events[0] += ev.size());
+        long b = measure(null, () -> engine.tick(dt), warm, ops);
+        engine.stop();
+        return b;
+    }
+
+    // 单枚导弹更新（一次操作 = 一轮齐射中每枚各更新一次）：每 32 轮重新齐射（不计入），潜艇血量极高不会死亡
+    static long missile(int n, int warm, int ops){
+        GameEngine engine = new GameEngine(W, H, SEED);
+        EngineBenchmarks.addSubs(engine, n, new Random(SEED), Integer.MAX_VALUE);
+        engine.rebuildSubIndex();
+        Random r = new Random(SEED);
+        List<Missile> salvo = new ArrayList<>(SALVO);
+        return measure(i -> {
+            if (i % 32 != 0) return;
+            engine.getMissileStore().clear();
+            salvo.clear();
+            for (int k = 0; k < SALVO; k++) salvo.add(Missile.launch(r.nextDouble() * W, engine.getSeaTop() - 20, engine));
+        }, () -> { for (int k = 0; k < SALVO; k++) salvo.get(k).update(16); }, warm, ops);
+    }
+
+    // 爆炸：每次登记一个海域中央的爆炸并结算；每 1024 次清空爆炸存储（不计入），潜艇不会死亡
+    static long explosion(int n, int warm, int ops){
+        GameEngine engine = new GameEngine(W, H, SEED);
+        EngineBenchmarks.addSubs(engine, n, new Random(SEED), Integer.MAX_VALUE);
+        engine.rebuildSubIndex();
+        double cy = engine.getSeaTop() + (H - engine.getSeaTop()) / 2.0;
+        return measure(i -> { if (i % 1024 == 0) engine.getExplosionStore().clear(); },
+                () -> { engine.requestExplosion(W / 2.0, cy, 70); engine.resolveExplosions(false); }, warm, ops);
+    }
+
+    /**
+     * 无头整帧绘制：资源（缺失时矢量绘制）+ 无屏幕的 SpriteCache，每帧之前推进一个 tick；
+     * tick 与 Graphics 的创建（由 Swing 负责）不计入。自动驾驶每 tick 移动军舰，HUD 几乎每帧重新栅格化。
+     */
+    static long paint(int n, int warm, int ops){
+        GameEngine engine = autopiloted(n);
+        SceneRenderer renderer = new SceneRenderer(Assets.load("resources"), new SpriteCache(null), engine.getSeaTop());
+        BufferedImage image = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D[] g = new Graphics2D[1];
+        FrameSnapshot[] f = new FrameSnapshot[1];
+        long start = System.nanoTime();
+        long b = measure(i -> {
+            engine.tick(16);
+            f[0] = engine.acquireSnapshot();
+            if (g[0] != null) g[0].dispose();
+            g[0] = image.createGraphics();
+        }, () -> renderer.render(g[0], W, H, f[0], 1, start + f[0].tick * 16_000_000L), warm, ops);
+        engine.stop();
+        return b;
+    }
+}
@@ -0,0 +1,80 @@
+package bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * 极简基准测试工具（无外部依赖）：预热 + 定时测量，报告 ns/op 与分配量。
+ * 分配量通过 com.sun.management.ThreadMXBean 读取当前线程累计分配字节，
+ * GC 次数/耗时来自 GarbageCollectorMXBean，对应 JMH 的 -prof gc 输出。
+ */
+public final class Bench {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Bench(){}
+
+    // 单个测量结果
+    public static final class Result {
+        public final String name;
+        public final int param;
+        public final long ops;
+        public final double nsPerOp;
+        public final double bytesPerOp;
+        public final long gcCount;
+        public final long gcTimeMs;
+
+        Result(String name, int param, long ops, double nsPerOp, double bytesPerOp, long gcCount, long gcTimeMs){
+            this.name = name; this.param = param; this.ops = ops;
+            this.nsPerOp = nsPerOp; this.bytesPerOp = bytesPerOp;
+            this.gcCount = gcCount; this.gcTimeMs = gcTimeMs;
+        }
+
+        @Override
+        public String toString(){
+            return String.format("%-24s n=%-7d ops=%-9d %14.1f ns/op %12.1f B/op  gc.count=%d gc.time=%dms",
+                    name, param, ops, nsPerOp, bytesPerOp, gcCount, gcTimeMs);
+        }
+    }
+
+    /**
+     * 测量 op 的耗时与分配。setup 在每 opsPerSetup 次 op 之前执行，且不计入测量。
+     * 预热阶段运行 warmupMs，测量阶段至少运行 measureMs（且至少 1 次 op）。
+     */
+    public static Result run(String name, int param, Runnable setup, Runnable op, int opsPerSetup,
+                             long warmupMs, long measureMs){
+        loop(setup, op, opsPerSetup, warmupMs * 1_000_000L, null);
+        long[] acc = new long[3]; // ops, ns, bytes
+        long gc0 = gcCount(), gct0 = gcTimeMs();
+        loop(setup, op, opsPerSetup, measureMs * 1_000_000L, acc);
+        long gcCount = gcCount() - gc0, gcTime = gcTimeMs() - gct0;
+        return new Result(name, param, acc[0], (double) acc[1] / acc[0], (double) acc[2] / acc[0], gcCount, gcTime);
+    }
+
+    private static void loop(Runnable setup, Runnable op, int opsPerSetup, long budgetNs, long[] acc){
+        long tid = Thread.currentThread().getId();
+        long spent = 0;
+        do {
+            if (setup != null) setup.run();
+            long b0 = THREADS.getThreadAllocatedBytes(tid);
+            long t0 = System.nanoTime();
+            for (int i = 0; i < opsPerSetup; i++) op.run();
+            long t = System.nanoTime() - t0;
+            long b = THREADS.getThreadAllocatedBytes(tid) - b0;
+            spent += t;
+            if (acc != null){ acc[0] += opsPerSetup; acc[1] += t; acc[2] += b; }
+        } while (spent < budgetNs);
+    }
+
+    private static long gcCount(){
+        long n = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) n += Math.max(0, gc.getCollectionCount());
+        return n;
+    }
+
+    private static long gcTimeMs(){
+        long n = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) n += Math.max(0, gc.getCollectionTime());
+        return n;
+    }
+}
@@ -0,0 +1,108 @@
+package bench;
+
+import engine.GameEngine;
+import entities.Bomb;
+import entities.Missile;
+import entities.Submarine;
+
+import java.util.Random;
+
+/**
+ * 引擎热点基准：tick、炸弹/潜艇重叠检测、爆炸结算的范围扫描、导弹批量制导（updateMissiles）。
+ * 用法：java bench.EngineBenchmarks [sizes] [filter] [warmupMs] [measureMs]
+ *  - sizes  : 潜艇/炸弹数量，逗号分隔，默认 10,100,1000,10000,100000
+ *  - filter : 只运行名称包含该子串的基准，默认全部
+ * 每个基准在同一 seed 下构造场景，结果可复现。
+ */
+public class EngineBenchmarks {
+    private static final int W = 800, H = 600;
+    private static final long SEED = 12345L;
+    private static final int SALVO = 256; // 导弹基准每轮齐射数量
+
+    public static void main(String[] args){
+        int[] sizes = parseSizes(args.length > 0 ? args[0] : "10,100,1000,10000,100000");
+        String filter = args.length > 1 ? args[1] : "";
+        long warmupMs = args.length > 2 ? Long.parseLong(args[2]) : 500;
+        long measureMs = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+
+        for (int n : sizes){
+            if ("tick".contains(filter)) System.out.println(tick(n, warmupMs, measureMs));
+            if ("collide".contains(filter)) System.out.println(collide(n, warmupMs, measureMs));
+            if ("explosion".contains(filter)) System.out.println(explosion(n, warmupMs, measureMs));
+            if ("missile".contains(filter)) System.out.println(missile(n, warmupMs, measureMs));
+        }
+    }
+
+    // 完整 tick：每次测量前重建 n 艘潜艇 + n 枚炸弹的场景（重建不计时）
+    static Bench.Result tick(int n, long warmupMs, long measureMs){
+        GameEngine[] holder = new GameEngine[1];
+        return Bench.run("tick", n,
+                () -> holder[0] = populated(n, n, false),
+                () -> holder[0].tick(16), 1, warmupMs, measureMs);
+    }
+
+    // 重叠检测：炸弹放在远离潜艇处，每枚炸弹都会扫描全部潜艇且状态不变（最坏情况）
+    static Bench.Result collide(int n, long warmupMs, long measureMs){
+        GameEngine engine = populated(n, n, true);
+        engine.rebuildSubIndex();
+        return Bench.run("resolveBombHits", n, null, engine::resolveBombHits, 1, warmupMs, measureMs);
+    }
+
+    // 爆炸结算：每次操作登记一个位于海域中央的爆炸请求并结算；潜艇血量极高不会死亡，状态保持稳定；
+    // 每批清空爆炸存储以免增长
+    static Bench.Result explosion(int n, long warmupMs, long measureMs){
+        GameEngine engine = new GameEngine(W, H, SEED);
+        addSubs(engine, n, new Random(SEED), Integer.MAX_VALUE);
+        engine.rebuildSubIndex();
+        double cy = engine.getSeaTop() + (H - engine.getSeaTop()) / 2.0;
+        return Bench.run("resolveExplosions", n, engine.getExplosionStore()::clear,
+                () -> { engine.requestExplosion(W / 2.0, cy, 70); engine.resolveExplosions(false); }, 1024, warmupMs, measureMs);
+    }
+
+    // 导弹阶段：n 艘潜艇 + 一轮 256 枚导弹齐射（海面上方随机位置），每 32 次更新重新齐射；
+    // 潜艇血量极高不会死亡，爆炸存储随齐射一起清空
+    static Bench.Result missile(int n, long warmupMs, long measureMs){
+        GameEngine engine = new GameEngine(W, H, SEED);
+        addSubs(engine, n, new Random(SEED), Integer.MAX_VALUE);
+        engine.rebuildSubIndex();
+        Random r = new Random(SEED);
+        return Bench.run("updateMissiles", n, () -> {
+                    engine.getMissileStore().clear();
+                    engine.getExplosionStore().clear();
+                    for (int i = 0; i < SALVO; i++) Missile.launch(r.nextDouble() * W, engine.getSeaTop() - 20, engine);
+                }, () -> engine.updateMissiles(16), 32, warmupMs, measureMs);
+    }
+
+    // 构造含 n 艘潜艇与 nb 枚炸弹的引擎；farBombs 为 true 时炸弹放在海域之外
+    static GameEngine populated(int nSubs, int nBombs, boolean farBombs){
+        Random r = new Random(SEED);
+        GameEngine engine = new GameEngine(W, H, SEED);
+        addSubs(engine, nSubs, r, 1);
+        int seaTop = engine.getSeaTop();
+        for (int i = 0; i < nBombs; i++){
+            double x = farBombs ? -1000 : r.nextDouble() * (W - 24);
+            double y = seaTop + r.nextDouble() * (H - seaTop) * 0.4;
+            Bomb.obtain(engine.getBombStore(), x, y);
+        }
+        engine.startManual();
+        return engine;
+    }
+
+    static void addSubs(GameEngine engine, int n, Random r, int hp){
+        int seaTop = engine.getSeaTop();
+        for (int i = 0; i < n; i++){
+            Submarine.Type type = r.nextDouble() < 0.4 ? Submarine.Type.RED : Submarine.Type.BLACK;
+            double x = r.nextDouble() * (W - 80);
+            double y = seaTop + 20 + r.nextDouble() * (H - seaTop - 80);
+            double vx = (r.nextBoolean() ? 1 : -1) * (1.2 + r.nextDouble() * 1.6);
+            Submarine.obtain(engine.getSubStore(), type, x, y, vx, hp, 0);
+        }
+    }
+
+    private static int[] parseSizes(String s){
+        String[] parts = s.split(",");
+        int[] out = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) out[i] = Integer.parseInt(parts[i].trim());
+        return out;
+    }
+}
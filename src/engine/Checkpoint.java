@@ -0,0 +1,81 @@
+package engine;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 引擎检查点：完整模拟状态的版本化二进制快照，经内存映射文件读写（列数组批量拷贝，不经 Java 序列化）。
+ *
+ * 文件格式（大端）：
+ *   magic "NWCK"(int) | 版本(short) | 种子(long) | 场景 properties 文本（int 长度 + UTF-8）| 引擎状态
+ * 引擎状态见 GameEngine.writeState：tick 数、分数、生成计时器、波次进度、随机数状态、军舰（位置、朝向、冷却），
+ * 以及炸弹/潜艇/爆炸/导弹存储的全部槽位（类型、血量、速度、浮动相位等各列与存活位图）。
+ * 恢复出的引擎与保存时逐位一致（stateHash 相同），之后的推进结果也相同，可用于崩溃恢复或从存档分叉模拟。
+ * 统计、并行设置、输入回调与录制属于运行配置，不在检查点内。
+ *
+ * 保存必须在模拟线程上（例如 preTickHook 中）或手动步进模式的 tick 之间进行。
+ * 先写入同目录的临时文件并 force 到磁盘，再原子替换目标文件，崩溃时不会留下半个检查点。
+ */
+public final class Checkpoint {
+    static final int MAGIC = 0x4E57434B; // "NWCK"
+    static final short VERSION = 3; // 2：增加大地图休眠分区状态；3：休眠潜艇欠下的基准步数
+
+    private Checkpoint(){}
+
+    public static void save(GameEngine engine, Path file) throws IOException {
+        StringWriter text = new StringWriter();
+        engine.getScenario().toProperties().store(text, null);
+        byte[] sc = text.toString().getBytes(StandardCharsets.UTF_8);
+        int size = 4 + 2 + 8 + 4 + sc.length + engine.stateBytes();
+
+        Path dir = file.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+                MappedByteBuffer out = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                out.putInt(MAGIC).putShort(VERSION).putLong(engine.getSeed());
+                out.putInt(sc.length).put(sc);
+                engine.writeState(out);
+                if (out.position() != size) throw new IllegalStateException("checkpoint size mismatch: " + out.position() + " != " + size);
+                out.force();
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // 读取检查点并创建处于保存时状态的新引擎（未启动：实时模式调用 start，无头模式调用 startManual）
+    public static GameEngine restore(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)){
+            MappedByteBuffer in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            return read(in, file);
+        }
+    }
+
+    private static GameEngine read(ByteBuffer in, Path file) throws IOException {
+        try {
+            if (in.getInt() != MAGIC) throw new IOException("not a checkpoint: " + file);
+            short version = in.getShort();
+            if (version != VERSION) throw new IOException("unsupported checkpoint version " + version + ": " + file);
+            long seed = in.getLong();
+            byte[] sc = new byte[in.getInt()];
+            in.get(sc);
+            Scenario scenario = Scenario.parse(new StringReader(new String(sc, StandardCharsets.UTF_8)));
+            GameEngine engine = new GameEngine(scenario, seed, false);
+            engine.readState(in);
+            return engine;
+        } catch (RuntimeException e){
+            throw new IOException("corrupt checkpoint " + file + ": " + e, e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package engine;
+
+import entities.EntityStore;
+
+/**
+ * 一帧的只读状态快照：各类实体按层（Layer）打包为原始类型数组。
+ * 由引擎在每个 tick 末尾填充并通过 SnapshotExchange 发布；缓冲区在帧之间循环复用，
+ * 数组只在实体数量超过容量时扩容，稳态下不分配内存。
+ * 读者（渲染线程）拿到快照后，在下一次 acquire 之前可以无锁、无复制地读取。
+ */
+public final class FrameSnapshot {
+    // 同类实体的一层（只包含存活实体，按存储槽位顺序）
+    public static final class Layer {
+        public int count;
+        public int[] id = new int[16];
+        public int[] tag = new int[16];
+        public double[] x = new double[16], y = new double[16];
+        public double[] w = new double[16], h = new double[16];
+        public double[] vx = new double[16], vy = new double[16];
+        public double[] px = new double[16], py = new double[16]; // 上一 tick 的位置（插值起点）
+
+        void copyFrom(EntityStore s){
+            int n = s.liveCount();
+            if (id.length < n) grow(s.capacity()); // 与存储同步扩容：存储预留了容量时快照也只分配一次
+            int k = 0;
+            for (int i = 0, size = s.size(); i < size; i++){
+                if (!s.isAlive(i)) continue;
+                id[k] = s.id(i); tag[k] = s.tag(i);
+                x[k] = s.x(i); y[k] = s.y(i); w[k] = s.w(i); h[k] = s.h(i);
+                vx[k] = s.vx(i); vy[k] = s.vy(i);
+                px[k] = s.prevX(i); py[k] = s.prevY(i);
+                k++;
+            }
+            count = k;
+        }
+
+        private void grow(int cap){
+            id = new int[cap]; tag = new int[cap];
+            x = new double[cap]; y = new double[cap]; w = new double[cap]; h = new double[cap];
+            vx = new double[cap]; vy = new double[cap];
+            px = new double[cap]; py = new double[cap];
+        }
+
+        // 插值后的坐标：alpha=0 为上一 tick，alpha=1 为本 tick
+        public double lerpX(int k, double alpha){ return px[k] + (x[k] - px[k]) * alpha; }
+        public double lerpY(int k, double alpha){ return py[k] + (y[k] - py[k]) * alpha; }
+    }
+
+    volatile long seq;       // 发布序号（单调递增），由 SnapshotExchange 维护
+    public long tick;
+    public long publishNanos;   // 发布时刻（System.nanoTime）
+    public long inputNanos;     // 尚未送达渲染的最早玩家指令的按键时刻（0 表示没有），用于 INPUT_PHOTON
+    public long stepNanos;      // 模拟步长，用于计算插值系数
+    public int score;
+    public int worldWidth, worldHeight; // 世界尺寸（可大于视口，渲染按镜头裁剪）
+    public double shipX, shipY, shipW, shipH;
+    public double shipPrevX, shipPrevY;
+    public int shipFacing;
+    public long missileCooldown; // 导弹剩余冷却（ms，模拟时间）
+    public final Layer bombs = new Layer();
+    public final Layer subs = new Layer();
+    public final Layer explosions = new Layer();
+    public final Layer missiles = new Layer();
+
+    public long getSeq(){ return seq; }
+
+    /**
+     * 渲染插值系数：快照发布后经过的时间占一个步长的比例，限制在 [0, 1]。
+     * 渲染在上一状态与本状态之间插值，因此画面固定滞后一个 tick，但运动平滑且与帧率无关。
+     */
+    public double alpha(long nowNanos){
+        if (stepNanos <= 0) return 1;
+        double a = (double)(nowNanos - publishNanos) / stepNanos;
+        return a < 0 ? 0 : (a > 1 ? 1 : a);
+    }
+}
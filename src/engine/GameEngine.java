@@ -1,133 +1,752 @@
 package engine;
 
 import entities.*;
-import entities.Entity.Rect;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongConsumer;
 
 public class GameEngine {
     private final int width, height;
     private final int seaTop;
+    private final Scenario scenario;
+    private final double subMinX, subMaxX; // 潜艇水平存活范围（随世界宽度）
     private final Ship ship;
-    private final List<Bomb> bombs = new CopyOnWriteArrayList<>();
-    private final List<Submarine> subs = new CopyOnWriteArrayList<>();
-    private final List<Explosion> exps = new CopyOnWriteArrayList<>();
-    private final Random rand = new Random();
+    // 各类实体的结构化数组存储（见 entities.EntityStore）
+    private final EntityStore bombs = new EntityStore(64);
+    private final EntityStore subs;
+    private final EntityStore exps = new EntityStore(64);
+    private final EntityStore missiles = new EntityStore(16);
+    // 大地图：活跃区（军舰两侧 activeRange，按 CHUNK 对齐）之外的潜艇移入休眠存储，不参与索引、碰撞与渲染，
+    // 每 DORMANT_PERIOD 个 tick 用闭式批量补上一次推进，同时按军舰位置重新划分活跃区（activeRange 为 0 时不启用）
+    private static final int CHUNK = 512, DORMANT_PERIOD = 8;
+    private final EntityStore dormant = new EntityStore(64);
+    private final int activeRange;
+    private int dormantTicks = 0;      // 自上次重新划分以来的 tick 数
+    private double dormantSteps = 0;   // 同一期间休眠潜艇欠下的基准步数（步长不是 16ms 时与 tick 数不同）
+    private double activeMinX, activeMaxX;
+    // 潜艇空间索引：每 tick 更新后重建，供炸弹/爆炸/导弹查询
+    private final SpatialGrid subIndex;
+    private final SpatialGrid.Cursor hitCursor, blastCursor;
+    // 导弹制导的批量查询缓冲（按导弹槽位，复用不分配）
+    private double[] aimX = new double[16], aimY = new double[16];
+    private int[] aimTarget = new int[16];
+    // 并行阶段（setParallelism 之前为 null，全部串行）与本 tick 是否启用；炸弹命中候选（按炸弹槽位）
+    private volatile ParallelPhases parallel;
+    private ParallelPhases tickParallel;
+    private int[] bombHit = new int[64];
+    // 连续碰撞：步长超过基准步时本 tick 对弹体做扫掠检测（见 sweepHit）；炸弹到达引爆深度的时刻（按炸弹槽位），
+    // 本 tick 潜艇的最大位移（扩大查询范围），最近一次 sweepHit 的碰撞时刻
+    private boolean tickSwept;
+    private double[] depthToi = new double[64];
+    private double subReach, sweepToi;
+    // 每 tick 末尾发布的帧快照（渲染线程无锁读取）
+    private final SnapshotExchange snapshots = new SnapshotExchange();
+    private final Rng rand;
+    private final long seed;
     private long subSpawnTimer = 0;
-    private long nextSubDelay = 1000 + rand.nextInt(1500);
+    private long nextSubDelay;
+    private long simTimeMs = 0;   // 累计模拟时间（波次触发用）
+    private int nextWave = 0;
     private int score = 0;
-    private boolean running = false;
+    private volatile boolean running = false;
+    private long tickCount = 0;
+    // 实时模式：独立模拟线程的固定步长（ms）与单次最大追赶步数
+    private long stepMs = 16;
+    private int maxCatchUpSteps = 5;
+    private volatile GameLoop loop;
+    private long droppedSteps = 0; // 已停止的模拟线程累计丢弃的步数
+    private volatile LongConsumer preTickHook;
+    private long lastDt = 16;
+    // 分阶段耗时统计（enableMetrics 之前为 null，tick 不计时）
+    private volatile TickMetrics metrics;
+    // 输入录制（startRecording 之前为 null）
+    private volatile InputRecorder recorder;
+    // 本 tick 的爆炸请求与事件日志；订阅者列表写时复制，tick 中只读取一次
+    private final GameEvents events = new GameEvents();
+    private volatile GameEventListener[] listeners = new GameEventListener[0];
+    // 玩家指令环形缓冲（UI 线程写入，tick 开始时取完）；方向键的按住状态，与尚未送达渲染线程的最早指令时刻
+    private final InputQueue input = new InputQueue(256);
+    private boolean leftHeld, rightHeld;
+    private long undeliveredInputNanos = 0;
 
     public GameEngine(int width, int height){
-        this.width = width; this.height = height;
+        this(width, height, System.nanoTime());
+    }
+
+    // 指定随机种子：相同种子 + 相同输入序列 => 相同的对局（无头模拟/回归测试使用）
+    public GameEngine(int width, int height, long seed){
+        this(Scenario.builder().world(width, height).build(), seed);
+    }
+
+    // 按场景（世界尺寸、生成规则、武器射速）创建
+    public GameEngine(Scenario scenario, long seed){
+        this(scenario, seed, true);
+    }
+
+    // populate = false 时不生成初始种群（从检查点恢复时状态随后整体覆盖）
+    GameEngine(Scenario scenario, long seed, boolean populate){
+        this.scenario = scenario;
+        // 按场景的种群规模预留潜艇槽位（留出定时生成超出目标与 tick 内新生成的余量），避免对局中途按倍数扩容
+        int population = Math.max(scenario.initialPopulation, scenario.targetPopulation);
+        this.subs = new EntityStore(Math.max(64, population + population / 4 + 64));
+        this.width = scenario.worldWidth; this.height = scenario.worldHeight;
+        this.seed = seed;
+        this.rand = new Rng(seed);
+        this.nextSubDelay = scenario.firstSpawnMinMs + rand.nextInt(scenario.firstSpawnSpreadMs);
         this.seaTop = (int)Math.floor(height * 0.38);
-        this.ship = new Ship((width - 100)/2, seaTop - 30, width);
+        this.ship = new Ship((width - 100)/2, seaTop - 30, width, scenario.bombIntervalMs, scenario.missileIntervalMs);
+        this.activeRange = scenario.activeRange;
+        // 存活范围与世界宽度相关：两侧各外扩 Submarine.MARGIN
+        this.subMinX = -Submarine.MARGIN;
+        this.subMaxX = width + Submarine.MARGIN;
+        this.activeMinX = subMinX; this.activeMaxX = subMaxX;
+        this.subIndex = new SpatialGrid(subMinX, seaTop, subMaxX, height, 64);
+        this.hitCursor = subIndex.newCursor();
+        this.blastCursor = subIndex.newCursor();
+        // 场景的初始种群直接生成在海域内
+        for (int i = 0; populate && i < scenario.initialPopulation; i++)
+            Submarine.spawnInside(subs, width, height, seaTop, rand, scenario.profile);
+        publishSnapshot();
+    }
+
+    /**
+     * 实时模式：启动独立的模拟线程，以固定步长 stepMs 推进（与渲染线程解耦）。
+     */
+    public synchronized void start(){
+        if (running) return;
+        running = true;
+        loop = new GameLoop(this, stepMs, maxCatchUpSteps);
+        loop.start();
     }
 
-    public void start(){ running = true; }
+    // 手动步进模式：不启动线程，由调用方自行调用 tick(dt)（无头模拟/基准测试使用）
+    public synchronized void startManual(){ running = true; }
+
+    /**
+     * 停止模拟：实时模式下等待模拟线程执行完当前 tick 并退出，之后才结束录制（尾部的得分与哈希取自完整的 tick）。
+     * 等待时不持有引擎锁，tick 内的回调调用引擎的同步方法不会死锁。在模拟线程自身上（tick 内）调用时无法等待，
+     * 由模拟线程退出循环后再完成收尾。
+     */
+    public void stop(){
+        GameLoop l;
+        synchronized (this){
+            running = false;
+            l = loop;
+        }
+        if (l != null && !l.stop()) return;
+        synchronized (this){
+            if (l != null && loop == l){
+                droppedSteps += l.getDroppedSteps();
+                loop = null;
+            }
+            try {
+                stopRecording();
+            } catch (IOException e){
+                System.err.println("input recording failed: " + e);
+            }
+        }
+    }
 
-    public void stop(){ running = false; }
+    /**
+     * 开始录制种子、场景与之后的全部玩家指令（格式见 InputRecorder），必须在第一个 tick 之前调用。
+     * stop() 或 stopRecording() 时写入最终得分与状态哈希并关闭文件；录制可由 InputReplay 全速重放并校验。
+     */
+    public synchronized void startRecording(Path file) throws IOException {
+        if (tickCount != 0) throw new IllegalStateException("recording must start before the first tick");
+        if (recorder != null) throw new IllegalStateException("already recording");
+        recorder = InputRecorder.open(file, seed, scenario);
+    }
+
+    // 结束录制（未在录制时忽略）；需在模拟线程上或模拟停止后调用
+    public synchronized void stopRecording() throws IOException {
+        InputRecorder r = recorder;
+        if (r == null) return;
+        recorder = null;
+        r.finish(tickCount, score, stateHash());
+    }
+
+    // 设置实时模式的步长与追赶上限（需在 start 之前调用）
+    public void setTimestep(long stepMs, int maxCatchUpSteps){
+        this.stepMs = stepMs;
+        this.maxCatchUpSteps = maxCatchUpSteps;
+    }
+
+    // 每个 tick 开始时在模拟线程上回调（dt 毫秒），用于处理输入等需要与模拟同线程的逻辑；重放（InputReplay.run）用它施加 tick 内的指令
+    public void setPreTickHook(LongConsumer hook){ this.preTickHook = hook; }
+
+    // 玩家指令缓冲：UI 线程 offer 带时间戳的指令，每个 tick 开始时执行
+    public InputQueue getInputQueue(){ return input; }
+
+    /**
+     * 执行缓冲中的全部指令：先更新方向键状态，再按住（或自上个 tick 以来按下过）的方向移动一步，
+     * 最后依次投弹/发射，与逐 tick 轮询按键时的顺序相同；在两个 tick 之间按下又松开的方向键也会移动一步。
+     * 启用统计时记录每条指令从按键到执行的延迟（INPUT_SIM）。
+     */
+    private void drainInput(TickMetrics m){
+        // 上一次发布的快照已被渲染线程取走，其中的指令时刻已送达
+        if (snapshots.latestAcquired()) undeliveredInputNanos = 0;
+        int n = input.available();
+        boolean left = leftHeld, right = rightHeld;
+        for (int k = 0; k < n; k++){
+            switch (input.command(k)){
+                case InputQueue.LEFT_DOWN: leftHeld = left = true; break;
+                case InputQueue.LEFT_UP: leftHeld = false; break;
+                case InputQueue.RIGHT_DOWN: rightHeld = right = true; break;
+                case InputQueue.RIGHT_UP: rightHeld = false; break;
+                default: break;
+            }
+        }
+        if (left) playerMoveLeft();
+        if (right) playerMoveRight();
+        if (n == 0) return;
+        for (int k = 0; k < n; k++){
+            int c = input.command(k);
+            if (c == InputQueue.DROP_BOMB) playerDropBomb();
+            else if (c == InputQueue.LAUNCH_MISSILE) playerLaunchMissile(); // 冷却中由引擎忽略
+        }
+        if (undeliveredInputNanos == 0) undeliveredInputNanos = input.nanos(0);
+        if (m != null){
+            long now = System.nanoTime();
+            for (int k = 0; k < n; k++) m.record(TickMetrics.Phase.INPUT_SIM, now - input.nanos(k), now);
+        }
+        input.release(n);
+    }
+
+    // 实时模式下因追赶上限被丢弃的步数
+    public long getDroppedSteps(){ GameLoop l = loop; return droppedSteps + (l == null ? 0 : l.getDroppedSteps()); }
 
     // 单步推进，dt 毫秒
     public void tick(long dt){
         if (!running) return;
+        TickMetrics m = metrics; // 整个 tick 使用同一实例（可能在 tick 之间被启用）
+        long t0 = m == null ? 0 : System.nanoTime(), t;
+        // 记录上一状态（渲染插值起点），必须在输入回调移动军舰之前
+        ship.savePrevious();
+        bombs.savePrevious();
+        subs.savePrevious();
+        missiles.savePrevious();
+        InputRecorder rec = recorder;
+        if (rec != null) rec.tick(tickCount, dt);
+        lastDt = dt; // 玩家移动按本 tick 的步长缩放
+        drainInput(m);
+        LongConsumer hook = preTickHook;
+        if (hook != null) hook.accept(dt);
+        t = lap(m, TickMetrics.Phase.INPUT, t0);
+        tickCount++;
+        GameEventListener[] ls = listeners;
+        events.begin(tickCount);
         // update ship (no dt-velocity based movement needed here)
         ship.update(dt);
 
-        // update bombs, subs, explosions
-        for (Bomb b : bombs) b.update(dt);
-        for (Submarine s : subs) s.update(dt);
-        for (Explosion e : exps) e.update(dt);
+        // 清理上一 tick（及 tick 之间 UI 侧）失效的实体：swap-remove，不复制数组
+        // 放在 tick 开头，保证 tick 结束后潜艇槽位与空间索引保持一致，供 UI 查询
+        bombs.compact();
+        subs.compact();
+        exps.compact();
+        missiles.compact();
+        // 大地图：每 DORMANT_PERIOD 个 tick 补推休眠潜艇并按军舰位置重新划分活跃区
+        if (activeRange > 0){
+            if (dormantTicks == 0 || dormantTicks >= DORMANT_PERIOD) rebalance();
+            dormantTicks++;
+            dormantSteps += Entity.steps(dt);
+        }
+        t = lap(m, TickMetrics.Phase.CLEANUP, t);
+
+        // 种群超过阈值时 UPDATE / 碰撞候选 / 导弹最近邻并行执行，否则串行（结果相同）
+        ParallelPhases p = parallel;
+        tickParallel = p != null && bombs.size() + subs.size() + exps.size() >= p.threshold ? p : null;
+        // 步长不超过基准步时弹体每 tick 的位移小于自身尺寸，离散检测不会穿透；更长的步长改用扫掠检测
+        tickSwept = dt > Entity.STEP_MS;
+
+        // update bombs, subs, explosions（按列数组批量推进）
+        if (tickParallel != null) tickParallel.update(bombs, subs, exps, dt, subMinX, subMaxX);
+        else {
+            Bomb.updateAll(bombs, dt);
+            Submarine.updateAll(subs, dt, subMinX, subMaxX);
+            Explosion.updateAll(exps, dt);
+        }
+        t = lap(m, TickMetrics.Phase.UPDATE, t);
+        subIndex.rebuild(subs);
+        if (tickSwept) subReach = maxDisplacement(subs);
+        t = lap(m, TickMetrics.Phase.BROADPHASE, t);
+
+        // 导弹制导与命中（先于炸弹结算，与原先在 tick 之前处理导弹的顺序一致）
+        updateMissiles(dt);
+        t = lap(m, TickMetrics.Phase.MISSILES, t);
+
+        // 炸弹到达深度或命中：与导弹命中一样只登记爆炸请求，本阶段内潜艇状态不变
+        detonateAtDepth();
+        t = lap(m, TickMetrics.Phase.DEPTH, t);
+        resolveBombHits();
+        t = lap(m, TickMetrics.Phase.COLLIDE, t);
+
+        // 按登记顺序统一结算爆炸：创建爆炸、范围伤害、击落计分（分数只在此处改变）
+        resolveExplosions(ls.length > 0);
+        t = lap(m, TickMetrics.Phase.RESOLVE, t);
+
+        // 生成潜艇：定时生成、波次、维持目标种群（规则见 Scenario）
+        spawnSubs(dt, ls.length > 0);
+        t = lap(m, TickMetrics.Phase.SPAWN, t);
+
+        for (GameEventListener l : ls) l.onEvents(events);
+
+        publishSnapshot();
+        t = lap(m, TickMetrics.Phase.PUBLISH, t);
+        if (m != null){
+            m.record(TickMetrics.Phase.TICK, t - t0, t);
+            m.counts(bombs.liveCount(), subs.liveCount(), exps.liveCount(), missiles.liveCount());
+        }
+    }
+
+    // 记录自 since 以来的阶段耗时并返回当前时刻；未启用统计时不读时钟
+    private static long lap(TickMetrics m, TickMetrics.Phase phase, long since){
+        if (m == null) return 0;
+        long now = System.nanoTime();
+        m.record(phase, now - since, now);
+        return now;
+    }
 
-        // ---- 新增：检查炸弹到达深度自动爆炸 ----
+    /**
+     * 启用分阶段耗时统计并注册 MBean（navalwar:type=TickMetrics）；重复调用返回同一实例。
+     * 未启用时 tick 只多一次 null 判断。
+     */
+    public synchronized TickMetrics enableMetrics(){
+        if (metrics == null){
+            TickMetrics m = new TickMetrics();
+            m.register();
+            metrics = m;
+        }
+        return metrics;
+    }
+
+    // 已启用的统计，未启用时为 null
+    public TickMetrics getMetrics(){ return metrics; }
+
+    /**
+     * 启用并行阶段：当炸弹、潜艇、爆炸槽位总数不少于 threshold 时，实体更新、炸弹命中候选扫描与导弹最近邻
+     * 在 pool 上并行执行（见 ParallelPhases），结果与串行逐位一致。pool 由调用方管理，可在多个引擎间共享；
+     * pool 为 null 时恢复串行。空间索引重建与爆炸结算始终串行。
+     */
+    public void setParallelism(ForkJoinPool pool, int threshold){
+        this.parallel = pool == null ? null : new ParallelPhases(pool, threshold);
+    }
+
+    // 把当前状态打包进快照后缓冲并原子发布
+    private void publishSnapshot(){
+        FrameSnapshot f = snapshots.back();
+        f.tick = tickCount;
+        f.publishNanos = System.nanoTime();
+        f.inputNanos = undeliveredInputNanos;
+        f.stepNanos = lastDt * 1_000_000L;
+        f.score = score;
+        f.worldWidth = width; f.worldHeight = height;
+        f.shipX = ship.getX(); f.shipY = ship.boxY(); f.shipW = ship.boxW(); f.shipH = ship.boxH();
+        f.shipPrevX = ship.getPrevX(); f.shipPrevY = ship.getPrevY();
+        f.shipFacing = ship.getFacing();
+        f.missileCooldown = ship.getMissileCooldown();
+        f.bombs.copyFrom(bombs);
+        f.subs.copyFrom(subs);
+        f.explosions.copyFrom(exps);
+        f.missiles.copyFrom(missiles);
+        snapshots.publish();
+    }
+
+    /**
+     * 取得最新发布的帧快照（单一读者，通常是渲染线程）。
+     * 返回的快照在下一次调用之前保持不变，可无锁读取。
+     */
+    public FrameSnapshot acquireSnapshot(){ return snapshots.acquire(); }
+
+    /**
+     * 阶段：炸弹到达设定深度自动爆炸（public 以便基准测试单独测量该阶段）。
+     * 扫掠检测时只求出越过深度的时刻，与命中潜艇的时刻比较后在 resolveBombHits 中引爆。
+     */
+    public void detonateAtDepth(){
         double explosionDepth = seaTop + (height - seaTop) * 0.45;
-        List<Bomb> bombsSnapshot = new ArrayList<>(bombs); // 避免并发修改问题
-        for (Bomb b : bombsSnapshot) {
-            if (!b.isActive()) continue;
-            Rect box = b.getBox();
-            if (box.y >= (int)explosionDepth) {
-                // 触发爆炸并创建 Explosion（由 Explosion 构造时处理伤害与注册）
-                b.explode(70);
-                int cx = box.x + box.w/2;
-                int cy = box.y + box.h/2;
-                new Explosion(cx, cy, 70, subs, this);
+        if (tickSwept){ depthCrossings((int)explosionDepth); return; }
+        for (int i = 0, n = bombs.size(); i < n; i++) {
+            if (!bombs.isAlive(i)) continue;
+            int by = bombs.boxY(i);
+            if (by >= (int)explosionDepth) {
+                // 触发爆炸，登记爆炸请求
+                int bx = bombs.boxX(i), bw = bombs.boxW(i), bh = bombs.boxH(i);
+                ((Bomb) bombs.view(i)).explode(70);
+                int cx = bx + bw/2;
+                int cy = by + bh/2;
+                events.request(cx, cy, 70);
             }
         }
+    }
+
+    // 扫掠检测：各炸弹本 tick 从上一位置到当前位置的路径上包围盒顶边到达 depth 的时刻，不到达时为 2
+    private void depthCrossings(int depth){
+        int n = bombs.size();
+        if (depthToi.length < n) depthToi = new double[Math.max(n, depthToi.length * 2)];
+        for (int i = 0; i < n; i++){
+            if (!bombs.isAlive(i) || bombs.boxY(i) < depth){ depthToi[i] = 2; continue; }
+            double y0 = bombs.prevY(i), dy = bombs.y(i) - y0;
+            depthToi[i] = y0 >= depth || dy <= 0 ? 0 : (depth - y0) / dy;
+        }
+    }
+
+    // 阶段：炸弹与潜艇的重叠检测，经空间索引只检查炸弹附近格子的潜艇
+    // 爆炸推迟到 RESOLVE 阶段，本阶段潜艇不会死亡：并行时直接采用并行求出的每枚炸弹的命中潜艇，再按槽位顺序登记
+    public void resolveBombHits(){
+        if (tickSwept){ sweepBombs(); return; }
+        int n = bombs.size();
+        ParallelPhases p = tickParallel;
+        if (p != null){
+            if (bombHit.length < n) bombHit = new int[Math.max(n, bombHit.length * 2)];
+            p.bombHits(bombs, subs, subIndex, bombHit);
+        }
+        for (int i = 0; i < n; i++){
+            if (!bombs.isAlive(i)) continue;
+            int k = p != null ? bombHit[i] : firstBombHit(bombs, i, subs, hitCursor);
+            if (k < 0) continue;
+            // 触发炸弹爆炸，登记爆炸请求
+            int bx = bombs.boxX(i), by = bombs.boxY(i), bw = bombs.boxW(i), bh = bombs.boxH(i);
+            ((Bomb) bombs.view(i)).explode(60);
+            int cx = bx + bw/2;
+            int cy = by + bh/2;
+            events.request(cx, cy, 60);
+        }
+    }
+
+    /**
+     * 扫掠检测的炸弹结算：每枚炸弹取越过引爆深度与命中潜艇中较早的一个（同一时刻深度优先，与离散检测的阶段顺序一致），
+     * 在该时刻的位置登记爆炸请求，RESOLVE 阶段按时刻排序结算。始终串行。
+     */
+    private void sweepBombs(){
+        for (int i = 0, n = bombs.size(); i < n; i++){
+            if (!bombs.isAlive(i)) continue;
+            double td = depthToi[i], ts = sweepHit(bombs, i) >= 0 ? sweepToi : 2;
+            if (td > 1 && ts > 1) continue;
+            boolean depth = td <= ts;
+            double toi = depth ? td : ts;
+            int radius = depth ? 70 : 60;
+            double x0 = bombs.prevX(i), y0 = bombs.prevY(i);
+            int bx = (int)(x0 + (bombs.x(i) - x0) * toi), by = (int)(y0 + (bombs.y(i) - y0) * toi);
+            ((Bomb) bombs.view(i)).explode(radius);
+            events.request(bx + bombs.boxW(i)/2, by + bombs.boxH(i)/2, radius, toi);
+        }
+    }
 
-        // 碰撞检测：炸弹直接命中潜艇触发爆炸（局部爆炸）
-        for (Bomb b : bombs){
-            if (!b.isActive()) continue;
-            Rect bbox = b.getBox();
-            for (Submarine s : subs){
-                if (!s.isActive()) continue;
-                Rect sbox = s.getBox();
-                if (rectOverlap(bbox, sbox)){
-                    // 触发炸弹爆炸并由 Explosion 处理范围伤害
-                    b.explode(60);
-                    int cx = bbox.x + bbox.w/2;
-                    int cy = bbox.y + bbox.h/2;
-                    new Explosion(cx, cy, 60, subs, this);
+    /**
+     * 弹体（store 的槽位 i）本 tick 从上一位置到当前位置的扫掠路径最早碰到的存活潜艇，没有返回 -1；
+     * 碰撞时刻写入 sweepToi。潜艇的位移按匀速计入（相对运动，见 Entity.sweep），候选经空间索引按路径外接矩形
+     * 外扩本 tick 潜艇的最大位移查询。同一时刻碰到多艘时取索引遍历顺序中的第一艘。
+     */
+    private int sweepHit(EntityStore p, int i){
+        double x1 = p.x(i), y1 = p.y(i), x0 = p.prevX(i), y0 = p.prevY(i), w = p.w(i), h = p.h(i);
+        double dx = x1 - x0, dy = y1 - y0, r = subReach;
+        hitCursor.overlapping(Math.min(x0, x1) - r, Math.min(y0, y1) - r, Math.max(x0, x1) + w + r, Math.max(y0, y1) + h + r);
+        int hit = -1;
+        double best = 2;
+        for (int k; (k = hitCursor.next()) >= 0; ){
+            if (!subs.isAlive(k)) continue;
+            double sx = subs.x(k), sy = subs.y(k), ex = sx - subs.prevX(k), ey = sy - subs.prevY(k);
+            double toi = Entity.sweep(x0 + ex, y0 + ey, w, h, dx - ex, dy - ey, sx, sy, subs.w(k), subs.h(k));
+            if (toi >= 0 && toi < best){ best = toi; hit = k; }
+        }
+        sweepToi = best;
+        return hit;
+    }
+
+    // 存活实体本 tick 的最大单轴位移
+    private static double maxDisplacement(EntityStore s){
+        double d = 0;
+        for (int i = 0, n = s.size(); i < n; i++){
+            if (!s.isAlive(i)) continue;
+            d = Math.max(d, Math.max(Math.abs(s.x(i) - s.prevX(i)), Math.abs(s.y(i) - s.prevY(i))));
+        }
+        return d;
+    }
+
+    // 与炸弹 i 重叠的第一艘存活潜艇（按索引遍历顺序），没有则 -1；只读，可在并行任务中以各自的游标调用
+    static int firstBombHit(EntityStore bombs, int i, EntityStore subs, SpatialGrid.Cursor cur){
+        int bx = bombs.boxX(i), by = bombs.boxY(i), bw = bombs.boxW(i), bh = bombs.boxH(i);
+        cur.overlapping(bx, by, bx + bw, by + bh);
+        for (int k; (k = cur.next()) >= 0; ){
+            if (subs.isAlive(k) && Entity.intersects(bx, by, bw, bh, subs.boxX(k), subs.boxY(k), subs.boxW(k), subs.boxH(k))) return k;
+        }
+        return -1;
+    }
+
+    /**
+     * 阶段：导弹制导与命中。全部导弹的目标由一次批量最近邻查询得到（O(m) 次网格环形搜索，
+     * 而不是每枚导弹扫描全部潜艇）；命中经空间索引检测，命中处产生半径 50 的爆炸。
+     * public 以便基准测试单独测量该阶段；调用前空间索引需与潜艇存储一致。
+     */
+    public void updateMissiles(long dt){
+        int n = missiles.size();
+        if (n == 0) return;
+        if (aimTarget.length < n){
+            int cap = Math.max(n, aimTarget.length * 2);
+            aimX = new double[cap]; aimY = new double[cap]; aimTarget = new int[cap];
+        }
+        for (int i = 0; i < n; i++){
+            aimX[i] = Missile.aimX(missiles, i);
+            aimY[i] = Missile.aimY(missiles, i);
+        }
+        ParallelPhases p = tickParallel;
+        if (p != null) p.nearest(subIndex, aimX, aimY, n, aimTarget);
+        else subIndex.nearest(aimX, aimY, n, aimTarget);
+        Missile.updateAll(missiles, aimTarget, subs, dt, width, height);
+
+        for (int i = 0; i < n; i++){
+            if (tickSwept){
+                // 扫掠检测：本 tick 飞出边界的导弹也检查飞出之前的路径（超时失效的没有移动，跳过）
+                if (!missiles.isAlive(i) && Missile.expired(missiles, i)) continue;
+                if (sweepHit(missiles, i) < 0) continue;
+                double toi = sweepToi, x0 = missiles.prevX(i), y0 = missiles.prevY(i);
+                missiles.view(i).setActive(false);
+                events.request(x0 + (missiles.x(i) - x0) * toi + Missile.boxW(missiles, i)/2.0,
+                        y0 + (missiles.y(i) - y0) * toi + Missile.boxH(missiles, i)/2.0, 50, toi);
+                continue;
+            }
+            if (!missiles.isAlive(i)) continue;
+            int mx = Missile.boxX(missiles, i), my = Missile.boxY(missiles, i);
+            int mw = Missile.boxW(missiles, i), mh = Missile.boxH(missiles, i);
+            hitCursor.overlapping(mx, my, mx + mw, my + mh);
+            for (int k; (k = hitCursor.next()) >= 0; ){
+                if (!subs.isAlive(k)) continue;
+                if (Entity.intersects(mx, my, mw, mh, subs.boxX(k), subs.boxY(k), subs.boxW(k), subs.boxH(k))){
+                    // 在命中处登记爆炸请求
+                    missiles.view(i).setActive(false);
+                    events.request(mx + mw/2.0, my + mh/2.0, 50);
                     break;
                 }
             }
         }
+    }
+
+    /**
+     * 阶段：按登记顺序结算本 tick 的爆炸请求。每个请求创建一个 Explosion，并经空间索引对范围内的存活潜艇
+     * 扣 1 点血，血量耗尽即击落并计分（潜艇自身分值）；前面的爆炸击落的潜艇不再受后面爆炸的伤害。
+     * log 为 true 时把 EXPLOSION / DAMAGE / KILL 写入事件日志。public 以便基准测试单独测量该阶段。
+     */
+    public void resolveExplosions(boolean log){
+        GameEvents ev = events;
+        ev.sortRequests();
+        for (int k = 0, n = ev.requestCount(); k < n; k++){
+            double x = ev.requestX(k), y = ev.requestY(k);
+            int radius = ev.requestRadius(k);
+            Explosion e = Explosion.obtain(exps, x, y, radius);
+            if (log) ev.log(GameEvents.EXPLOSION, e.getId(), radius, x, y);
+            blastCursor.around(x, y, radius);
+            for (int i; (i = blastCursor.next()) >= 0; ){
+                if (!subs.isAlive(i) || !Explosion.inBlast(x, y, radius, subs, i)) continue;
+                boolean killed = Submarine.damage(subs, i, 1);
+                if (killed) score += Submarine.scoreOf(subs, i);
+                if (log) ev.log(killed ? GameEvents.KILL : GameEvents.DAMAGE, subs.id(i),
+                        killed ? Submarine.scoreOf(subs, i) : subs.hp(i), subs.centerX(i), subs.centerY(i));
+            }
+        }
+        ev.clearRequests();
+    }
 
-        // 炸弹到达深度或命中后会创建 Explosion，Explosion 构造时会对潜艇造成伤害并更新分数
-        // 清理无效对象并统计死亡以计分（Explosion 已处理计分）
-        bombs.removeIf(b -> !b.isActive());
-        List<Submarine> before = new ArrayList<>(subs);
-        subs.removeIf(s -> !s.isActive());
-        exps.removeIf(e -> e.isDone());
+    // 登记爆炸请求（基准测试/场景脚本使用），在下一次 resolveExplosions 时结算
+    public void requestExplosion(double x, double y, int radius){ events.request(x, y, radius); }
 
-        // 生成潜艇
+    // 订阅每 tick 的事件（见 GameEventListener）；可在任意线程调用，从下一个 tick 起生效
+    public synchronized void addEventListener(GameEventListener l){
+        GameEventListener[] a = Arrays.copyOf(listeners, listeners.length + 1);
+        a[a.length - 1] = l;
+        listeners = a;
+    }
+
+    public synchronized void removeEventListener(GameEventListener l){
+        GameEventListener[] a = listeners;
+        for (int i = 0; i < a.length; i++){
+            if (a[i] != l) continue;
+            GameEventListener[] b = new GameEventListener[a.length - 1];
+            System.arraycopy(a, 0, b, 0, i);
+            System.arraycopy(a, i + 1, b, i, a.length - i - 1);
+            listeners = b;
+            return;
+        }
+    }
+
+    /**
+     * 补推休眠潜艇（dormantSteps 个基准步），再以军舰中心为准按 CHUNK 对齐划出活跃区 [activeMinX, activeMaxX)，
+     * 把区外的活跃潜艇移入休眠存储、区内的休眠潜艇移回（保留 id 与全部状态）。新生成的潜艇总是先进入活跃存储，
+     * 在下一次划分时归位。每 DORMANT_PERIOD 个 tick 一次，摊销后每 tick 的休眠开销为 O(休眠数 / DORMANT_PERIOD)。
+     */
+    private void rebalance(){
+        Submarine.advanceDormant(dormant, dormantSteps, subMinX, subMaxX);
+        dormantTicks = 0;
+        dormantSteps = 0;
+        double cx = ship.centerX();
+        double lo = Math.floor((cx - activeRange) / CHUNK) * CHUNK, hi = Math.ceil((cx + activeRange) / CHUNK) * CHUNK;
+        for (int i = 0, n = subs.size(); i < n; i++){
+            if (!subs.isAlive(i)) continue;
+            double x = subs.centerX(i);
+            if (x < lo || x >= hi) Submarine.moveTo(subs, i, dormant);
+        }
+        for (int i = 0, n = dormant.size(); i < n; i++){
+            if (!dormant.isAlive(i)) continue;
+            double x = dormant.centerX(i);
+            if (x >= lo && x < hi) Submarine.moveTo(dormant, i, subs);
+        }
+        subs.compact();
+        dormant.compact();
+        activeMinX = lo;
+        activeMaxX = hi;
+    }
+
+    private void spawnSubs(long dt, boolean log){
+        Scenario sc = scenario;
         subSpawnTimer += dt;
         if (subSpawnTimer >= nextSubDelay){
-            spawnSub();
+            for (int i = 0; i < sc.spawnBatch; i++) spawnSub(log);
             subSpawnTimer = 0;
-            nextSubDelay = 800 + rand.nextInt(2000);
+            nextSubDelay = sc.spawnMinMs + rand.nextInt(sc.spawnSpreadMs);
+        }
+        simTimeMs += dt;
+        while (nextWave < sc.waves.size() && sc.waves.get(nextWave).atMs <= simTimeMs){
+            for (int i = 0, n = sc.waves.get(nextWave).count; i < n; i++) spawnSub(log);
+            nextWave++;
+        }
+        if (sc.targetPopulation > 0){
+            int missing = Math.min(sc.targetPopulation - subs.liveCount() - dormant.liveCount(), sc.maxSpawnPerTick);
+            for (int i = 0; i < missing; i++) spawnSub(log);
         }
     }
 
-    private void spawnSub(){
+    private void spawnSub(boolean log){
         boolean fromLeft = rand.nextBoolean();
-        Submarine s = new Submarine(fromLeft ? -1 : 1, width, height, seaTop);
-        subs.add(s);
+        Submarine s = Submarine.spawn(subs, fromLeft ? -1 : 1, width, height, seaTop, rand, scenario.profile);
+        if (log) events.log(GameEvents.SPAWN, s.getId(), s.getType().ordinal(), s.centerX(), s.centerY());
     }
 
-    // 矩形碰撞
-    private boolean rectOverlap(Rect a, Rect b){
-        return a.x < b.x + b.w && a.x + a.w > b.x && a.y < b.y + b.h && a.y + a.h > b.y;
-    }
 
     // 玩家接口
-    public void playerMoveLeft(){ ship.move(-1); }
-    public void playerMoveRight(){ ship.move(1); }
+    // 录制时每条指令（无论是否因冷却被忽略）都记在当前 tick 下，重放时按同样顺序调用
+    public void playerMoveLeft(){ record(InputRecorder.LEFT); ship.move(-1, Entity.steps(lastDt)); }
+    public void playerMoveRight(){ record(InputRecorder.RIGHT); ship.move(1, Entity.steps(lastDt)); }
     public void playerDropBomb(){
-        Bomb b = ship.dropBomb();
-        if (b != null) bombs.add(b);
+        record(InputRecorder.BOMB);
+        ship.dropBomb(bombs);
+    }
+    // 从军舰中心发射导弹；冷却（5 秒模拟时间）由军舰维护，冷却中忽略
+    public void playerLaunchMissile(){
+        record(InputRecorder.MISSILE);
+        if (ship.tryLaunchMissile()) Missile.launch(ship.centerX(), ship.centerY(), this);
     }
 
-    // Explosion 回调用于计分与移除潜艇（由 Explosion 本身调用 engine.registerKill）
-    public void registerKill(Submarine s, int gain){
-        score += gain;
-        s.setActive(false);
+    private void record(int op){
+        InputRecorder r = recorder;
+        if (r != null) r.command(tickCount, op);
     }
+    // 导弹剩余冷却（ms）
+    public long getMissileCooldown(){ return ship.getMissileCooldown(); }
 
-    // 供 Explosion 访问 engine（弱耦合）
     public int getWidth(){ return width; }
     public int getHeight(){ return height; }
     public int getSeaTop(){ return seaTop; }
-    public void addExplosion(Explosion e){ exps.add(e); }
+    public int getScore(){ return score; }
+    public long getSeed(){ return seed; }
+    public Scenario getScenario(){ return scenario; }
+    public long getTickCount(){ return tickCount; }
+    // 当前存活实体总数（含军舰），用于吞吐统计
+    public int getEntityCount(){ return 1 + bombs.liveCount() + subs.liveCount() + dormant.liveCount() + exps.liveCount() + missiles.liveCount(); }
+    // 当前活跃区的水平范围（未启用大地图分区时为整个世界）
+    public double getActiveMinX(){ return activeMinX; }
+    public double getActiveMaxX(){ return activeMaxX; }
+    public SpatialGrid getSubIndex(){ return subIndex; }
+    // 立即按当前潜艇重建索引（tick 之外注入实体后使用）
+    public void rebuildSubIndex(){ subIndex.rebuild(subs); }
+    // 实体存储（实体构造时直接写入对应存储；基准测试/场景脚本可借此直接注入实体）
+    public EntityStore getBombStore(){ return bombs; }
+    public EntityStore getSubStore(){ return subs; }
+    // 休眠潜艇（大地图活跃区之外；未启用分区时为空）
+    public EntityStore getDormantStore(){ return dormant; }
+    public EntityStore getExplosionStore(){ return exps; }
+    public EntityStore getMissileStore(){ return missiles; }
+    // 统一设置各实体对象池上限
+    public void setPoolCapacity(int cap){
+        bombs.setPoolCapacity(cap); subs.setPoolCapacity(cap);
+        exps.setPoolCapacity(cap); missiles.setPoolCapacity(cap);
+    }
+    // 对象池命中/未命中统计（四类实体合计）
+    public long getPoolHits(){ return bombs.poolHits() + subs.poolHits() + exps.poolHits() + missiles.poolHits(); }
+    public long getPoolMisses(){ return bombs.poolMisses() + subs.poolMisses() + exps.poolMisses() + missiles.poolMisses(); }
+
+    /**
+     * 全部模拟状态的 64 位哈希：军舰、各实体存储（按槽位顺序）、分数、tick 数与生成计时器（大地图另含休眠存储与补推计数）。
+     * 不含渲染插值状态；相同场景 + 种子 + 输入序列在任意机器上得到相同的值（回放校验使用）。
+     */
+    public long stateHash(){
+        long h = ship.hash(seed);
+        h = bombs.hash(h); h = subs.hash(h); h = exps.hash(h); h = missiles.hash(h);
+        if (activeRange > 0){
+            h = dormant.hash(h);
+            h = EntityStore.mix(h, dormantTicks);
+            h = EntityStore.mix(h, Double.doubleToLongBits(dormantSteps));
+        }
+        h = EntityStore.mix(h, score);
+        h = EntityStore.mix(h, tickCount);
+        h = EntityStore.mix(h, subSpawnTimer);
+        h = EntityStore.mix(h, nextSubDelay);
+        h = EntityStore.mix(h, simTimeMs);
+        return EntityStore.mix(h, nextWave);
+    }
+
+    // 检查点中引擎状态部分的字节数（见 writeState）
+    int stateBytes(){
+        return 6 * 8 + 3 * 4 + 3 * 8 + Ship.CHECKPOINT_BYTES + bombs.checkpointBytes() + subs.checkpointBytes()
+                + exps.checkpointBytes() + missiles.checkpointBytes() + dormant.checkpointBytes();
+    }
+
+    // 写入全部模拟状态（计时器、分数、随机数状态、军舰与各存储），由 Checkpoint 调用
+    void writeState(ByteBuffer out){
+        out.putLong(tickCount).putInt(score).putLong(subSpawnTimer).putLong(nextSubDelay)
+           .putLong(simTimeMs).putInt(nextWave).putLong(lastDt).putLong(rand.getState());
+        ship.writeTo(out);
+        bombs.writeTo(out);
+        subs.writeTo(out);
+        exps.writeTo(out);
+        missiles.writeTo(out);
+        out.putInt(dormantTicks).putDouble(dormantSteps).putDouble(activeMinX).putDouble(activeMaxX);
+        dormant.writeTo(out);
+    }
+
+    // writeState 的逆操作；恢复后重建空间索引并发布快照
+    void readState(ByteBuffer in){
+        tickCount = in.getLong(); score = in.getInt(); subSpawnTimer = in.getLong(); nextSubDelay = in.getLong();
+        simTimeMs = in.getLong(); nextWave = in.getInt(); lastDt = in.getLong(); rand.setState(in.getLong());
+        ship.readFrom(in);
+        Bomb.readStore(bombs, in);
+        Submarine.readStore(subs, in);
+        Explosion.readStore(exps, in);
+        Missile.readStore(this, in);
+        dormantTicks = in.getInt(); dormantSteps = in.getDouble(); activeMinX = in.getDouble(); activeMaxX = in.getDouble();
+        Submarine.readStore(dormant, in);
+        subIndex.rebuild(subs);
+        publishSnapshot();
+    }
 
     // 状态输出
     public String statusString(){
-        return String.format("Score=%d ShipX=%.1f bombs=%d subs=%d exps=%d",
-                score, ship.getX(), bombs.size(), subs.size(), exps.size());
+        return String.format("Score=%d ShipX=%.1f bombs=%d subs=%d exps=%d missiles=%d",
+                score, ship.getX(), bombs.liveCount(), subs.liveCount(), exps.liveCount(), missiles.liveCount());
     }
 
-    // 新增：供 UI 渲染用的只读快照访问器
+    // 存活实体视图列表（每次调用新建列表；逐帧渲染请使用 acquireSnapshot）
     public Ship getShip(){ return ship; }
-    public List<Bomb> getBombs(){ return new ArrayList<>(bombs); }
-    public List<Submarine> getSubs(){ return new ArrayList<>(subs); }
-    public List<Explosion> getExplosions(){ return new ArrayList<>(exps); }
+    public List<Bomb> getBombs(){ return liveViews(bombs, Bomb.class); }
+    public List<Submarine> getSubs(){ return liveViews(subs, Submarine.class); }
+    public List<Explosion> getExplosions(){ return liveViews(exps, Explosion.class); }
+    public List<Missile> getMissiles(){ return liveViews(missiles, Missile.class); }
+
+    private static <T extends Entity> List<T> liveViews(EntityStore store, Class<T> type){
+        List<T> out = new ArrayList<>(store.liveCount());
+        for (int i = 0, n = store.size(); i < n; i++){
+            if (store.isAlive(i)) out.add(type.cast(store.view(i)));
+        }
+        return out;
+    }
 }
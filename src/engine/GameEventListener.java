@@ -0,0 +1,10 @@
+package engine;
+
+/**
+ * 游戏事件订阅者（统计、网络、回放等）。每个 tick 在生成阶段之后、发布快照之前于模拟线程上回调一次，
+ * 参数为本 tick 的全部事件（见 GameEvents）；回调应尽快返回，不得保留 events 的引用。
+ */
+@FunctionalInterface
+public interface GameEventListener {
+    void onEvents(GameEvents events);
+}
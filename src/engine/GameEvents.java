@@ -0,0 +1,102 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * 每 tick 的游戏事件缓冲（结构化数组，稳态下不分配内存）。
+ *
+ * 两部分：
+ *  - 爆炸请求队列：导弹命中、炸弹到达深度或命中时只登记 (x, y, 半径, 碰撞时刻)，不产生副作用；
+ *    GameEngine 在 RESOLVE 阶段按碰撞时刻（同时刻按登记顺序）统一结算（创建爆炸、经空间索引批量判定伤害、击落计分）。
+ *    离散检测的碰撞时刻都是 1（tick 末尾），即按登记顺序；长步长的连续碰撞检测给出 tick 内更早的时刻。
+ *  - 事件日志：结算与生成阶段产生的 EXPLOSION / DAMAGE / KILL / SPAWN 事件，tick 末尾一次性交给订阅者
+ *    （GameEventListener），随后清空。没有订阅者时不写日志，热循环中只多一次判断。
+ *
+ * 日志事件的字段：
+ *  - EXPLOSION：id = 爆炸实体 id，value = 半径，(x, y) = 爆炸中心
+ *  - DAMAGE   ：id = 潜艇 id，value = 剩余血量（> 0），(x, y) = 潜艇中心
+ *  - KILL     ：id = 潜艇 id，value = 得分，(x, y) = 潜艇中心
+ *  - SPAWN    ：id = 潜艇 id，value = 潜艇类型序号，(x, y) = 潜艇中心
+ * 只能在模拟线程上读写；订阅者不得在回调之外保留本对象的数据。
+ */
+public final class GameEvents {
+    public static final int EXPLOSION = 0, DAMAGE = 1, KILL = 2, SPAWN = 3;
+
+    // 爆炸请求
+    private double[] reqX = new double[16], reqY = new double[16], reqToi = new double[16];
+    private int[] reqRadius = new int[16];
+    private int requests = 0;
+    private boolean unordered = false; // 存在碰撞时刻早于前一条的请求
+    // 事件日志
+    private int[] type = new int[64], id = new int[64], value = new int[64];
+    private double[] x = new double[64], y = new double[64];
+    private int size = 0;
+    private long tick;
+
+    GameEvents(){}
+
+    // 登记爆炸请求（碰撞发生在 tick 末尾），在本 tick 的 RESOLVE 阶段结算
+    void request(double x, double y, int radius){ request(x, y, radius, 1); }
+
+    // 登记爆炸请求，toi 为碰撞在本 tick 内的时刻（[0, 1]）
+    void request(double x, double y, int radius, double toi){
+        if (requests == reqX.length){
+            int cap = requests * 2;
+            reqX = Arrays.copyOf(reqX, cap); reqY = Arrays.copyOf(reqY, cap);
+            reqToi = Arrays.copyOf(reqToi, cap); reqRadius = Arrays.copyOf(reqRadius, cap);
+        }
+        if (requests > 0 && toi < reqToi[requests - 1]) unordered = true;
+        reqX[requests] = x; reqY[requests] = y; reqToi[requests] = toi; reqRadius[requests] = radius;
+        requests++;
+    }
+
+    // 按碰撞时刻稳定排序（插入排序；已有序时不做任何事）
+    void sortRequests(){
+        if (!unordered) return;
+        unordered = false;
+        for (int k = 1; k < requests; k++){
+            double x = reqX[k], y = reqY[k], toi = reqToi[k];
+            int r = reqRadius[k], j = k - 1;
+            for (; j >= 0 && reqToi[j] > toi; j--){
+                reqX[j + 1] = reqX[j]; reqY[j + 1] = reqY[j]; reqToi[j + 1] = reqToi[j]; reqRadius[j + 1] = reqRadius[j];
+            }
+            reqX[j + 1] = x; reqY[j + 1] = y; reqToi[j + 1] = toi; reqRadius[j + 1] = r;
+        }
+    }
+
+    int requestCount(){ return requests; }
+    double requestX(int k){ return reqX[k]; }
+    double requestY(int k){ return reqY[k]; }
+    int requestRadius(int k){ return reqRadius[k]; }
+    void clearRequests(){ requests = 0; unordered = false; }
+
+    void log(int type, int id, int value, double x, double y){
+        if (size == this.type.length){
+            int cap = size * 2;
+            this.type = Arrays.copyOf(this.type, cap); this.id = Arrays.copyOf(this.id, cap);
+            this.value = Arrays.copyOf(this.value, cap);
+            this.x = Arrays.copyOf(this.x, cap); this.y = Arrays.copyOf(this.y, cap);
+        }
+        this.type[size] = type; this.id[size] = id; this.value[size] = value;
+        this.x[size] = x; this.y[size] = y;
+        size++;
+    }
+
+    void begin(long tick){ this.tick = tick; size = 0; }
+
+    // 事件所属的 tick
+    public long tick(){ return tick; }
+    public int size(){ return size; }
+    public int type(int i){ return type[i]; }
+    public int id(int i){ return id[i]; }
+    public int value(int i){ return value[i]; }
+    public double x(int i){ return x[i]; }
+    public double y(int i){ return y[i]; }
+
+    // 指定类型的事件数
+    public int count(int type){
+        int n = 0;
+        for (int i = 0; i < size; i++) if (this.type[i] == type) n++;
+        return n;
+    }
+}
@@ -0,0 +1,86 @@
+package engine;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 独立的模拟线程：累加器式固定步长循环。
+ * 每个 tick 都以相同的 stepMs 推进引擎，与渲染帧率和绘制耗时无关；
+ * 落后时一次最多追赶 maxCatchUpSteps 步，超出的时间直接丢弃（记入 droppedSteps），避免“死亡螺旋”。
+ */
+final class GameLoop implements Runnable {
+    private final GameEngine engine;
+    private final long stepMs;
+    private final long stepNanos;
+    private final int maxCatchUpSteps;
+    private volatile boolean running = false;
+    private volatile long droppedSteps = 0;
+    private volatile boolean stopOnExit = false; // stop 在模拟线程自身上被调用：退出循环后由本线程完成引擎的收尾
+    private volatile Thread thread;
+
+    GameLoop(GameEngine engine, long stepMs, int maxCatchUpSteps){
+        this.engine = engine;
+        this.stepMs = stepMs;
+        this.stepNanos = stepMs * 1_000_000L;
+        this.maxCatchUpSteps = Math.max(1, maxCatchUpSteps);
+    }
+
+    void start(){
+        running = true;
+        thread = new Thread(this, "game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 停止循环并等待模拟线程退出（不设超时：正在执行的 tick 结束后线程即退出），返回 true。
+     * 在模拟线程自身上（tick 内的回调中）调用时无法等待，返回 false，线程退出循环后再调用一次 GameEngine.stop。
+     */
+    boolean stop(){
+        running = false;
+        Thread t = thread;
+        if (t == null) return true;
+        if (t == Thread.currentThread()){
+            stopOnExit = true;
+            return false;
+        }
+        LockSupport.unpark(t);
+        boolean interrupted = false;
+        while (t.isAlive()){
+            try {
+                t.join();
+            } catch (InterruptedException e){
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        return true;
+    }
+
+    long getDroppedSteps(){ return droppedSteps; }
+
+    @Override
+    public void run(){
+        long prev = System.nanoTime();
+        long acc = 0;
+        while (running){
+            long now = System.nanoTime();
+            acc += now - prev;
+            prev = now;
+            int steps = 0;
+            while (acc >= stepNanos && steps < maxCatchUpSteps && running){
+                engine.tick(stepMs);
+                acc -= stepNanos;
+                steps++;
+            }
+            // 追赶上限：丢弃积压的整步，只保留不足一步的余量
+            if (acc >= stepNanos){
+                droppedSteps += acc / stepNanos;
+                acc %= stepNanos;
+            }
+            long wait = stepNanos - acc;
+            if (wait > 0) LockSupport.parkNanos(wait);
+        }
+        thread = null;
+        if (stopOnExit) engine.stop();
+    }
+}
@@ -0,0 +1,57 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单写者/单读者的玩家指令环形缓冲：写者（通常是 EDT 的按键回调）追加带时间戳的指令，
+ * GameEngine 在每个 tick 开始时于模拟线程上一次取完并执行（见 GameEngine.tick）。
+ *
+ * 两个游标各自只有一个线程推进，以 release/acquire 发布：写者写完槽位后才推进 tail，读者读完后才推进 head，
+ * 不加锁、不分配。写者缓存读者的 head，只有看似已满时才重新读取。
+ * 缓冲满时新指令被丢弃并计数（getDropped）；容量按 tick 间隔内的按键数远超需要来选取。
+ */
+public final class InputQueue {
+    // 指令：左/右方向键按下与松开，投弹，发射导弹
+    public static final int LEFT_DOWN = 0, LEFT_UP = 1, RIGHT_DOWN = 2, RIGHT_UP = 3, DROP_BOMB = 4, LAUNCH_MISSILE = 5;
+
+    private final int[] commands;
+    private final long[] stamps;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // 写者推进
+    private final AtomicLong head = new AtomicLong(); // 读者推进
+    private long cachedHead = 0;                      // 写者看到的 head
+    private volatile long dropped = 0;                // 只由写者递增
+
+    // capacity 向上取整为 2 的幂
+    public InputQueue(int capacity){
+        int cap = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        commands = new int[cap];
+        stamps = new long[cap];
+        mask = cap - 1;
+    }
+
+    /**
+     * 写者：追加一条指令，nanos 为按键时刻（System.nanoTime）。缓冲已满时丢弃并返回 false。
+     */
+    public boolean offer(int command, long nanos){
+        long t = tail.getPlain();
+        if (t - cachedHead > mask){
+            cachedHead = head.getAcquire();
+            if (t - cachedHead > mask){ dropped++; return false; }
+        }
+        int k = (int) t & mask;
+        commands[k] = command;
+        stamps[k] = nanos;
+        tail.setRelease(t + 1);
+        return true;
+    }
+
+    // 读者：可读的指令数（之后以 command/nanos 按序号读取，读完 release）
+    int available(){ return (int) (tail.getAcquire() - head.getPlain()); }
+    int command(int k){ return commands[(int) (head.getPlain() + k) & mask]; }
+    long nanos(int k){ return stamps[(int) (head.getPlain() + k) & mask]; }
+    void release(int n){ head.setRelease(head.getPlain() + n); }
+
+    public int capacity(){ return mask + 1; }
+    public long getDropped(){ return dropped; }
+}
@@ -0,0 +1,118 @@
+package engine;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 输入录制：种子、场景与按 tick 编号的玩家指令流，紧凑二进制格式，经 64KB 直接缓冲区批量写入 FileChannel。
+ *
+ * 文件格式（大端）：
+ *   头：magic "NWIR"(int) | 版本(short) | 种子(long) | 场景 properties 文本（varint 长度 + UTF-8）
+ *   记录：varint((tickDelta << 3) | op)，tickDelta 为距上一条记录的 tick 数；
+ *         op 为 LEFT/RIGHT/BOMB/MISSILE 时是玩家指令，DT 之后跟 varint 步长（只在步长变化时写），END 结束记录；
+ *         DT 与 TICK 同时标记该 tick 的开始：其前的指令在 tick 之前发出，其后的在 tick 内（输入缓冲、输入回调）发出，
+ *         步长未变但有 tick 内指令时才写 TICK
+ *   尾（END 之后）：最终 tick 数(long) | 得分(int) | 状态哈希(long，见 GameEngine.stateHash)
+ * 指令记在"已完成的 tick 数"下，即作用于下一个 tick；同一 tick 内的指令通常各占 1 字节。
+ * 区分 tick 之前与 tick 内是因为两者的军舰移动按不同的步长缩放（上一 tick 的与本 tick 的），重放须在同样的位置施加。
+ * 只能在模拟线程上使用（或模拟停止后），由 GameEngine.startRecording/stopRecording 管理。
+ */
+final class InputRecorder {
+    static final int MAGIC = 0x4E574952; // "NWIR"
+    // 2：爆炸改为 tick 内统一结算，版本 1 的录制在新规则下无法复现；3：增加 TICK 记录，区分 tick 之前与 tick 内的指令
+    static final short VERSION = 3;
+    static final int END = 0, LEFT = 1, RIGHT = 2, BOMB = 3, MISSILE = 4, DT = 5, TICK = 6;
+
+    private final FileChannel channel;
+    private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16);
+    private long lastTick = 0;
+    private long lastDt = -1;
+    private long startedTick = -1; // 正在执行的 tick（tick 内的指令记在它下面）
+    private long markedTick = -1;  // 最近一个已写开始标记（DT 或 TICK）的 tick
+
+    private InputRecorder(FileChannel channel){ this.channel = channel; }
+
+    static InputRecorder open(Path file, long seed, Scenario scenario) throws IOException {
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        InputRecorder r = new InputRecorder(ch);
+        try {
+            StringWriter text = new StringWriter();
+            scenario.toProperties().store(text, null);
+            byte[] sc = text.toString().getBytes(StandardCharsets.UTF_8);
+            r.buf.putInt(MAGIC).putShort(VERSION).putLong(seed);
+            r.putVarint(sc.length);
+            for (int off = 0; off < sc.length; ){
+                int n = Math.min(sc.length - off, r.buf.remaining());
+                r.buf.put(sc, off, n);
+                off += n;
+                r.drainIfFull(1);
+            }
+            return r;
+        } catch (IOException | RuntimeException e){
+            ch.close();
+            throw e;
+        }
+    }
+
+    // tick 开始时调用：步长与上一次不同时写一条 DT 记录
+    void tick(long tick, long dt){
+        startedTick = tick;
+        if (dt == lastDt) return;
+        record(tick, DT);
+        putVarint(dt);
+        lastDt = dt;
+        markedTick = tick;
+    }
+
+    // tick 内的第一条指令之前补写开始标记（本 tick 没有 DT 记录时）
+    void command(long tick, int op){
+        if (tick == startedTick && markedTick != tick){
+            record(tick, TICK);
+            markedTick = tick;
+        }
+        record(tick, op);
+    }
+
+    // 写 END 与尾部校验信息，刷出并关闭文件
+    void finish(long tick, int score, long stateHash) throws IOException {
+        try {
+            record(tick, END);
+            buf.putLong(tick).putInt(score).putLong(stateHash);
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void record(long tick, int op){
+        putVarint(((tick - lastTick) << 3) | op);
+        lastTick = tick;
+    }
+
+    private void putVarint(long v){
+        drainIfFull(10 + 20); // varint 最多 10 字节，另为 END 之后的尾部留出 20 字节
+        while ((v & ~0x7FL) != 0){
+            buf.put((byte)((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buf.put((byte) v);
+    }
+
+    // 剩余空间不足 need 字节时刷出
+    private void drainIfFull(int need){
+        if (buf.remaining() >= need) return;
+        try { drain(); } catch (IOException e){ throw new UncheckedIOException(e); }
+    }
+
+    private void drain() throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) channel.write(buf);
+        buf.clear();
+    }
+}
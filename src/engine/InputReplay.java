@@ -0,0 +1,138 @@
+package engine;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * 读取 InputRecorder 写出的录制文件，并以最快速度无头重放（格式见 InputRecorder）。
+ * 重放按录制的种子与场景新建引擎，把每个 tick 编号下的指令施加在录制时发出的位置：开始标记之前的在 tick 之前，
+ * 之后的经输入回调（preTickHook）在 tick 内，推进到录制的最终 tick，
+ * 然后可用 verify 与文件尾记录的得分、状态哈希逐位比较。录制因此可直接作为确定性的性能回归负载。
+ */
+public final class InputReplay {
+    public final long seed;
+    public final Scenario scenario;
+    public final long ticks;       // 录制结束时的 tick 数
+    public final int score;        // 录制结束时的得分
+    public final long stateHash;   // 录制结束时的 GameEngine.stateHash
+    public final int commands;     // 玩家指令条数
+    private final ByteBuffer records;
+
+    private InputReplay(long seed, Scenario scenario, ByteBuffer records){
+        this.seed = seed;
+        this.scenario = scenario;
+        this.records = records;
+        // 预扫描一遍：统计指令数并读出尾部
+        ByteBuffer b = records.duplicate();
+        long tick = 0;
+        int n = 0;
+        for (;;){
+            long rec = getVarint(b);
+            int op = (int)(rec & 7);
+            tick += rec >>> 3;
+            if (op == InputRecorder.END) break;
+            if (op == InputRecorder.DT) getVarint(b);
+            else if (op == InputRecorder.TICK) continue;
+            else if (op > InputRecorder.TICK) throw new IllegalArgumentException("bad record op " + op + " at tick " + tick);
+            else n++;
+        }
+        this.commands = n;
+        this.ticks = b.getLong();
+        this.score = b.getInt();
+        this.stateHash = b.getLong();
+        if (ticks != tick) throw new IllegalArgumentException("corrupt recording: END at tick " + tick + ", footer says " + ticks);
+    }
+
+    public static InputReplay load(Path file) throws IOException {
+        ByteBuffer b;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)){
+            long len = ch.size();
+            if (len > Integer.MAX_VALUE) throw new IOException("recording too large: " + len + " bytes");
+            b = ByteBuffer.allocate((int) len);
+            while (b.hasRemaining() && ch.read(b) >= 0){ }
+        }
+        b.flip();
+        try {
+            if (b.getInt() != InputRecorder.MAGIC) throw new IOException("not an input recording: " + file);
+            short version = b.getShort();
+            if (version != InputRecorder.VERSION) throw new IOException("unsupported recording version " + version + ": " + file);
+            long seed = b.getLong();
+            byte[] sc = new byte[(int) getVarint(b)];
+            b.get(sc);
+            Scenario scenario = Scenario.parse(new StringReader(new String(sc, StandardCharsets.UTF_8)));
+            return new InputReplay(seed, scenario, b.slice());
+        } catch (RuntimeException e){
+            throw new IOException("corrupt recording " + file + ": " + e, e);
+        }
+    }
+
+    /**
+     * 全速重放：返回推进到录制最终 tick 并已停止的引擎。prepare 可在第一个 tick 之前配置引擎
+     * （例如 enableMetrics、setParallelism），为 null 时忽略；输入回调由重放占用，prepare 设置的会被替换。
+     */
+    public GameEngine run(Consumer<GameEngine> prepare){
+        GameEngine e = new GameEngine(scenario, seed);
+        if (prepare != null) prepare.accept(e);
+        Cursor c = new Cursor(records.duplicate());
+        e.setPreTickHook(dt -> c.apply(e, e.getTickCount(), true));
+        e.startManual();
+        for (long tick = 0; tick < ticks; tick++){
+            c.apply(e, tick, false);
+            e.tick(c.dt);
+        }
+        e.stop();
+        return e;
+    }
+
+    // 记录流的读取位置与当前步长
+    private static final class Cursor {
+        private final ByteBuffer b;
+        private long rec, nextTick;
+        long dt = 16;
+
+        Cursor(ByteBuffer b){
+            this.b = b;
+            rec = getVarint(b);
+            nextTick = rec >>> 3;
+        }
+
+        // 施加编号为 tick 的记录：inTick 为 false 时到开始标记（DT/TICK，一并读取）为止，为 true 时施加其余全部
+        void apply(GameEngine e, long tick, boolean inTick){
+            while (nextTick == tick){
+                int op = (int)(rec & 7);
+                switch (op){
+                    case InputRecorder.LEFT: e.playerMoveLeft(); break;
+                    case InputRecorder.RIGHT: e.playerMoveRight(); break;
+                    case InputRecorder.BOMB: e.playerDropBomb(); break;
+                    case InputRecorder.MISSILE: e.playerLaunchMissile(); break;
+                    case InputRecorder.DT: dt = getVarint(b); break;
+                    default: break;
+                }
+                rec = getVarint(b);
+                nextTick += rec >>> 3;
+                if (!inTick && (op == InputRecorder.DT || op == InputRecorder.TICK)) return;
+            }
+        }
+    }
+
+    // 重放结果是否与录制逐位一致（得分、tick 数与状态哈希）
+    public boolean verify(GameEngine e){
+        return e.getTickCount() == ticks && e.getScore() == score && e.stateHash() == stateHash;
+    }
+
+    private static long getVarint(ByteBuffer b){
+        long v = 0;
+        for (int shift = 0; ; shift += 7){
+            byte x = b.get();
+            v |= (long)(x & 0x7F) << shift;
+            if (x >= 0) return v;
+            if (shift > 56) throw new IllegalArgumentException("varint too long");
+        }
+    }
+}
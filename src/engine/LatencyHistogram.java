@@ -0,0 +1,65 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * 低开销延迟直方图（纳秒）：对数-线性分桶，每个 2 的幂区间再分 32 个子桶，相对误差约 3%。
+ * record 为 O(1)、无分配，只应由单一线程写入；跨线程读取请先 copyTo 到另一实例（由调用方同步）。
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;            // 32
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0, max = 0, sum = 0;
+
+    public void record(long nanos){
+        long v = nanos < 0 ? 0 : nanos;
+        counts[index(v)]++;
+        count++;
+        sum += v;
+        if (v > max) max = v;
+    }
+
+    static int index(long v){
+        if (v < SUB) return (int)v;
+        int msb = 63 - Long.numberOfLeadingZeros(v);
+        int top = (int)(v >>> (msb - SUB_BITS));                 // [32, 63]
+        return (msb - SUB_BITS + 1) * SUB + (top - SUB);
+    }
+
+    // 桶的上界（含）
+    static long upperBound(int idx){
+        if (idx < 2 * SUB) return idx;
+        int msb = idx / SUB + SUB_BITS - 1;
+        long top = idx % SUB + SUB;
+        return ((top + 1) << (msb - SUB_BITS)) - 1;
+    }
+
+    public long count(){ return count; }
+    public long max(){ return max; }
+    public double mean(){ return count == 0 ? 0 : (double) sum / count; }
+
+    // 分位数（q 属于 [0, 1]），返回所在桶的上界，不超过 max；没有样本时为 0
+    public long percentile(double q){
+        if (count == 0) return 0;
+        long target = Math.max(1, (long)Math.ceil(q * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++){
+            seen += counts[i];
+            if (seen >= target) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    public void reset(){
+        Arrays.fill(counts, 0);
+        count = 0; max = 0; sum = 0;
+    }
+
+    public void copyTo(LatencyHistogram dst){
+        System.arraycopy(counts, 0, dst.counts, 0, BUCKETS);
+        dst.count = count; dst.max = max; dst.sum = sum;
+    }
+}
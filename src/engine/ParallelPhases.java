@@ -0,0 +1,83 @@
+package engine;
+
+import entities.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 大种群时的并行 tick 阶段（GameEngine.setParallelism 启用）。在调用方提供的 ForkJoinPool 上按槽位范围拆分：
+ *   - UPDATE：炸弹/潜艇/爆炸逐槽推进，范围按 EntityStore.ALIGN 对齐，各任务不共享存活位图的同一个 long；
+ *     失效只清存活位，全部完成后由调用方 recountLive；
+ *   - COLLIDE 的命中扫描：只读空间索引与存储，为每枚炸弹找出第一艘重叠的存活潜艇，结果写入按槽位的数组；
+ *     调用方按槽位顺序登记爆炸请求，伤害与计分在 RESOLVE 阶段串行结算；
+ *   - 导弹制导的批量最近邻查询（只读）。
+ * 所有写入都落在各任务独占的槽位上，合并顺序与串行实现相同，因此结果与串行模式逐位一致。
+ */
+final class ParallelPhases {
+    // 单个任务处理的最少槽位数（ALIGN 的整数倍）
+    private static final int GRAIN = 2048;
+    // 最近邻查询的单任务粒度（每次查询为一次环形搜索，远比单槽推进重）
+    private static final int QUERY_GRAIN = 128;
+
+    private interface Body { void run(int from, int to); }
+
+    // 把 [from, to) 按 ALIGN 对齐二分，直到不超过 grain
+    private static final class Split extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Body body;
+        private final int from, to, grain;
+
+        Split(Body body, int from, int to, int grain){
+            this.body = body; this.from = from; this.to = to; this.grain = grain;
+        }
+
+        @Override
+        protected void compute(){
+            if (to - from <= grain){ body.run(from, to); return; }
+            int mid = ((from + to) >>> 1) & -EntityStore.ALIGN;
+            if (mid <= from) mid = from + EntityStore.ALIGN;
+            invokeAll(new Split(body, from, mid, grain), new Split(body, mid, to, grain));
+        }
+    }
+
+    private final ForkJoinPool pool;
+    final int threshold;
+
+    ParallelPhases(ForkJoinPool pool, int threshold){
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    // 阶段 UPDATE：三类存储各自拆分后一起执行；结束后重新统计存活数
+    void update(EntityStore bombs, EntityStore subs, EntityStore exps, long dt, double minX, double maxX){
+        pool.invoke(new RecursiveAction(){
+            @Override
+            protected void compute(){
+                invokeAll(new Split((a, b) -> Bomb.updateRange(bombs, a, b, dt), 0, bombs.size(), GRAIN),
+                          new Split((a, b) -> Submarine.updateRange(subs, a, b, dt, minX, maxX), 0, subs.size(), GRAIN),
+                          new Split((a, b) -> Explosion.updateRange(exps, a, b, dt), 0, exps.size(), GRAIN));
+            }
+        });
+        subs.recountLive();
+        exps.recountLive();
+    }
+
+    /**
+     * COLLIDE 命中扫描：out[i] = 与炸弹 i 重叠的第一艘存活潜艇（按索引遍历顺序），没有则 -1；失效炸弹为 -1。
+     * 判定与 GameEngine.firstBombHit 相同；每个任务使用自己的游标。
+     */
+    void bombHits(EntityStore bombs, EntityStore subs, SpatialGrid grid, int[] out){
+        pool.invoke(new Split((a, b) -> {
+            SpatialGrid.Cursor cur = grid.newCursor();
+            for (int i = a; i < b; i++) out[i] = bombs.isAlive(i) ? GameEngine.firstBombHit(bombs, i, subs, cur) : -1;
+        }, 0, bombs.size(), GRAIN));
+    }
+
+    // 批量最近邻（同 SpatialGrid.nearest(double[], double[], int, int[])）
+    void nearest(SpatialGrid grid, double[] qx, double[] qy, int n, int[] out){
+        pool.invoke(new Split((a, b) -> {
+            for (int k = a; k < b; k++) out[k] = grid.nearest(qx[k], qy[k]);
+        }, 0, n, QUERY_GRAIN));
+    }
+}
@@ -0,0 +1,33 @@
+package engine;
+
+import java.util.Random;
+
+/**
+ * 可保存状态的 java.util.Random：同样的 48 位线性同余生成器与种子扰动，因此同一种子产生的序列与 Random 完全相同，
+ * 但状态可以读出与恢复（检查点使用）。nextInt/nextDouble/nextBoolean 等都经 next(bits)，无需覆盖。
+ * 与 Random 不同，不是线程安全的（只在模拟线程上使用）。
+ */
+final class Rng extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long MULTIPLIER = 0x5DEECE66DL, ADDEND = 0xBL, MASK = (1L << 48) - 1;
+
+    private long state; // 由 Random 的构造器经 setSeed 初始化，不能在声明处赋值
+
+    Rng(long seed){ super(seed); }
+
+    @Override
+    public synchronized void setSeed(long seed){
+        state = (seed ^ MULTIPLIER) & MASK;
+        super.setSeed(seed); // 清除 nextGaussian 的缓存
+    }
+
+    @Override
+    protected int next(int bits){
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int)(state >>> (48 - bits));
+    }
+
+    // 当前内部状态（48 位）；setState 之后的序列与保存时完全相同
+    long getState(){ return state; }
+    void setState(long s){ state = s & MASK; }
+}
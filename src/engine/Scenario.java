@@ -0,0 +1,206 @@
+package engine;
+
+import entities.Submarine;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * 对局/压测场景：世界尺寸、潜艇生成节奏（定时生成、批量、波次、维持目标种群）、类型比例与速度分布、武器射速。
+ * 不可变；通过 builder() 构造，或从 properties 文件读取（键见 load，未知键报错以免拼写错误被忽略）。
+ * DEFAULT 即原有的硬编码规则：800x600，首只潜艇 1000~2500ms，之后每 800~2800ms 生成一只。
+ * 同一场景 + 同一种子 + 同一输入序列 => 同一对局。
+ */
+public final class Scenario {
+    // 波次：模拟时间到达 atMs 时从两侧一次生成 count 只潜艇
+    public static final class Wave {
+        public final long atMs;
+        public final int count;
+        public Wave(long atMs, int count){ this.atMs = atMs; this.count = count; }
+    }
+
+    public static final Scenario DEFAULT = builder().build();
+
+    public final String name;
+    public final int worldWidth, worldHeight;
+    public final int activeRange;                           // 活跃区半宽（以军舰为中心），区外潜艇休眠；0 表示全部活跃
+    // 定时生成：首次延迟 = firstSpawnMin + [0, firstSpawnSpread)，之后每次间隔 = spawnMin + [0, spawnSpread)（ms）
+    public final long firstSpawnMinMs, spawnMinMs;
+    public final int firstSpawnSpreadMs, spawnSpreadMs;
+    public final int spawnBatch;                            // 每次定时生成的数量（0 关闭定时生成）
+    public final int initialPopulation;                     // 开局在海域内直接生成的数量
+    public final int targetPopulation;                      // 存活数低于该值时每 tick 补足（0 表示不维持）
+    public final int maxSpawnPerTick;                       // 补足种群时每 tick 最多生成的数量
+    public final List<Wave> waves;                          // 按时间排序
+    public final Submarine.Profile profile;
+    public final double bombIntervalMs, missileIntervalMs;  // 武器射速（军舰冷却）
+    public final boolean autopilotMissiles;                 // 无头自动驾驶是否发射导弹
+
+    private Scenario(Builder b){
+        name = b.name;
+        worldWidth = b.worldWidth; worldHeight = b.worldHeight;
+        activeRange = b.activeRange;
+        firstSpawnMinMs = b.firstSpawnMinMs; firstSpawnSpreadMs = b.firstSpawnSpreadMs;
+        spawnMinMs = b.spawnMinMs; spawnSpreadMs = b.spawnSpreadMs;
+        spawnBatch = b.spawnBatch;
+        initialPopulation = b.initialPopulation;
+        targetPopulation = b.targetPopulation;
+        maxSpawnPerTick = b.maxSpawnPerTick;
+        List<Wave> w = new ArrayList<>(b.waves);
+        w.sort((p, q) -> Long.compare(p.atMs, q.atMs));
+        waves = Collections.unmodifiableList(w);
+        profile = new Submarine.Profile(b.redRatio, b.toughRatio, b.speedMin, b.speedSpread, b.redSpeedMult, b.blackSpeedMult);
+        bombIntervalMs = b.bombIntervalMs; missileIntervalMs = b.missileIntervalMs;
+        autopilotMissiles = b.autopilotMissiles;
+    }
+
+    public static Builder builder(){ return new Builder(); }
+
+    public static final class Builder {
+        private String name = "default";
+        private int worldWidth = 800, worldHeight = 600;
+        private int activeRange = 0;
+        private long firstSpawnMinMs = 1000, spawnMinMs = 800;
+        private int firstSpawnSpreadMs = 1500, spawnSpreadMs = 2000;
+        private int spawnBatch = 1;
+        private int initialPopulation = 0, targetPopulation = 0, maxSpawnPerTick = Integer.MAX_VALUE;
+        private final List<Wave> waves = new ArrayList<>();
+        private double redRatio = Submarine.Profile.DEFAULT.redRatio, toughRatio = Submarine.Profile.DEFAULT.toughRatio;
+        private double speedMin = Submarine.Profile.DEFAULT.speedMin, speedSpread = Submarine.Profile.DEFAULT.speedSpread;
+        private double redSpeedMult = Submarine.Profile.DEFAULT.redSpeedMult, blackSpeedMult = Submarine.Profile.DEFAULT.blackSpeedMult;
+        private double bombIntervalMs = 400, missileIntervalMs = 5000;
+        private boolean autopilotMissiles = false;
+
+        private Builder(){}
+
+        public Builder name(String name){ this.name = name; return this; }
+        public Builder world(int width, int height){ this.worldWidth = width; this.worldHeight = height; return this; }
+        // 大地图：只有军舰两侧 range 像素内（按区块对齐）的潜艇逐 tick 完整推进，其余休眠（见 GameEngine）
+        public Builder activeRange(int range){ this.activeRange = range; return this; }
+        public Builder firstSpawn(long minMs, int spreadMs){ this.firstSpawnMinMs = minMs; this.firstSpawnSpreadMs = spreadMs; return this; }
+        public Builder spawnInterval(long minMs, int spreadMs){ this.spawnMinMs = minMs; this.spawnSpreadMs = spreadMs; return this; }
+        public Builder spawnBatch(int n){ this.spawnBatch = n; return this; }
+        public Builder initialPopulation(int n){ this.initialPopulation = n; return this; }
+        public Builder targetPopulation(int n, int maxPerTick){ this.targetPopulation = n; this.maxSpawnPerTick = maxPerTick; return this; }
+        public Builder wave(long atMs, int count){ waves.add(new Wave(atMs, count)); return this; }
+        public Builder typeRatio(double red){ this.redRatio = red; return this; }
+        public Builder toughRatio(double ratio){ this.toughRatio = ratio; return this; }
+        public Builder speed(double min, double spread){ this.speedMin = min; this.speedSpread = spread; return this; }
+        public Builder speedMultipliers(double red, double black){ this.redSpeedMult = red; this.blackSpeedMult = black; return this; }
+        public Builder fireRates(double bombIntervalMs, double missileIntervalMs){
+            this.bombIntervalMs = bombIntervalMs; this.missileIntervalMs = missileIntervalMs; return this;
+        }
+        public Builder autopilotMissiles(boolean on){ this.autopilotMissiles = on; return this; }
+
+        public Scenario build(){
+            if (worldWidth < 200 || worldHeight < 200) throw new IllegalArgumentException("world too small: " + worldWidth + "x" + worldHeight);
+            if (activeRange < 0) throw new IllegalArgumentException("negative active range");
+            if (firstSpawnSpreadMs < 1 || spawnSpreadMs < 1) throw new IllegalArgumentException("spawn spread must be >= 1ms");
+            if (spawnBatch < 0 || initialPopulation < 0 || targetPopulation < 0 || maxSpawnPerTick < 1)
+                throw new IllegalArgumentException("negative population settings");
+            if (redRatio < 0 || redRatio > 1 || toughRatio < 0 || toughRatio > 1)
+                throw new IllegalArgumentException("ratios must be within [0, 1]");
+            return new Scenario(this);
+        }
+    }
+
+    /**
+     * 从 properties 文件读取场景。支持的键（均可省略，省略时取 DEFAULT 的值）：
+     *   name, world.width, world.height, world.activeRange,
+     *   spawn.first.min, spawn.first.spread, spawn.interval.min, spawn.interval.spread, spawn.batch,
+     *   population.initial, population.target, population.maxPerTick,
+     *   types.red, hp.tough, speed.min, speed.spread, speed.red, speed.black,
+     *   fire.bomb.interval, fire.missile.interval, autopilot.missiles,
+     *   wave.N = atMs:count（N 任意，按时间排序）
+     */
+    public static Scenario load(Path file) throws IOException {
+        try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)){
+            return parse(r);
+        }
+    }
+
+    public static Scenario parse(Reader reader) throws IOException {
+        Properties p = new Properties();
+        p.load(reader);
+        Builder b = builder();
+        for (String key : p.stringPropertyNames()){
+            String v = p.getProperty(key).trim();
+            try {
+                if (key.startsWith("wave.")){
+                    int colon = v.indexOf(':');
+                    if (colon < 0) throw new IllegalArgumentException("expected atMs:count");
+                    b.wave(Long.parseLong(v.substring(0, colon).trim()), Integer.parseInt(v.substring(colon + 1).trim()));
+                    continue;
+                }
+                switch (key){
+                    case "name": b.name = v; break;
+                    case "world.width": b.worldWidth = Integer.parseInt(v); break;
+                    case "world.height": b.worldHeight = Integer.parseInt(v); break;
+                    case "world.activeRange": b.activeRange = Integer.parseInt(v); break;
+                    case "spawn.first.min": b.firstSpawnMinMs = Long.parseLong(v); break;
+                    case "spawn.first.spread": b.firstSpawnSpreadMs = Integer.parseInt(v); break;
+                    case "spawn.interval.min": b.spawnMinMs = Long.parseLong(v); break;
+                    case "spawn.interval.spread": b.spawnSpreadMs = Integer.parseInt(v); break;
+                    case "spawn.batch": b.spawnBatch = Integer.parseInt(v); break;
+                    case "population.initial": b.initialPopulation = Integer.parseInt(v); break;
+                    case "population.target": b.targetPopulation = Integer.parseInt(v); break;
+                    case "population.maxPerTick": b.maxSpawnPerTick = Integer.parseInt(v); break;
+                    case "types.red": b.redRatio = Double.parseDouble(v); break;
+                    case "hp.tough": b.toughRatio = Double.parseDouble(v); break;
+                    case "speed.min": b.speedMin = Double.parseDouble(v); break;
+                    case "speed.spread": b.speedSpread = Double.parseDouble(v); break;
+                    case "speed.red": b.redSpeedMult = Double.parseDouble(v); break;
+                    case "speed.black": b.blackSpeedMult = Double.parseDouble(v); break;
+                    case "fire.bomb.interval": b.bombIntervalMs = Double.parseDouble(v); break;
+                    case "fire.missile.interval": b.missileIntervalMs = Double.parseDouble(v); break;
+                    case "autopilot.missiles": b.autopilotMissiles = Boolean.parseBoolean(v); break;
+                    default: throw new IllegalArgumentException("unknown key");
+                }
+            } catch (IllegalArgumentException e){
+                throw new IllegalArgumentException("scenario key '" + key + "' = '" + v + "': " + e.getMessage(), e);
+            }
+        }
+        return b.build();
+    }
+
+    // 转为 properties（键同 load；parse 读回得到等价场景），输入录制把它写入文件头
+    public Properties toProperties(){
+        Properties p = new Properties();
+        p.setProperty("name", name);
+        p.setProperty("world.width", Integer.toString(worldWidth));
+        p.setProperty("world.height", Integer.toString(worldHeight));
+        p.setProperty("world.activeRange", Integer.toString(activeRange));
+        p.setProperty("spawn.first.min", Long.toString(firstSpawnMinMs));
+        p.setProperty("spawn.first.spread", Integer.toString(firstSpawnSpreadMs));
+        p.setProperty("spawn.interval.min", Long.toString(spawnMinMs));
+        p.setProperty("spawn.interval.spread", Integer.toString(spawnSpreadMs));
+        p.setProperty("spawn.batch", Integer.toString(spawnBatch));
+        p.setProperty("population.initial", Integer.toString(initialPopulation));
+        p.setProperty("population.target", Integer.toString(targetPopulation));
+        p.setProperty("population.maxPerTick", Integer.toString(maxSpawnPerTick));
+        p.setProperty("types.red", Double.toString(profile.redRatio));
+        p.setProperty("hp.tough", Double.toString(profile.toughRatio));
+        p.setProperty("speed.min", Double.toString(profile.speedMin));
+        p.setProperty("speed.spread", Double.toString(profile.speedSpread));
+        p.setProperty("speed.red", Double.toString(profile.redSpeedMult));
+        p.setProperty("speed.black", Double.toString(profile.blackSpeedMult));
+        p.setProperty("fire.bomb.interval", Double.toString(bombIntervalMs));
+        p.setProperty("fire.missile.interval", Double.toString(missileIntervalMs));
+        p.setProperty("autopilot.missiles", Boolean.toString(autopilotMissiles));
+        for (int i = 0; i < waves.size(); i++) p.setProperty("wave." + i, waves.get(i).atMs + ":" + waves.get(i).count);
+        return p;
+    }
+
+    @Override
+    public String toString(){
+        return name + " (" + worldWidth + "x" + worldHeight + ", initial=" + initialPopulation
+                + ", target=" + targetPopulation + ", waves=" + waves.size() + ")";
+    }
+}
@@ -0,0 +1,33 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 单写者/单读者的三缓冲快照交换：写者独占 back，读者独占 front，middle 通过原子交换传递。
+ * 写者填完 back 后 publish() 一次 getAndSet 与 middle 互换；读者 acquire() 时若 middle 更新则互换到 front。
+ * 双方都不加锁、不等待，也不会读到正在被写入的缓冲区。
+ */
+final class SnapshotExchange {
+    private FrameSnapshot back = new FrameSnapshot();
+    private FrameSnapshot front = new FrameSnapshot();
+    private final AtomicReference<FrameSnapshot> middle = new AtomicReference<>(new FrameSnapshot());
+    private long nextSeq = 0;
+
+    // 写者：当前可写缓冲区
+    FrameSnapshot back(){ return back; }
+
+    // 写者：发布已填好的 back，并换回一个可复用的缓冲区
+    void publish(){
+        back.seq = ++nextSeq;
+        back = middle.getAndSet(back);
+    }
+
+    // 写者：最近一次发布的快照是否已被读者取走（读者取走后 middle 中是更早的缓冲区）
+    boolean latestAcquired(){ return middle.get().seq != nextSeq; }
+
+    // 读者：取得最新已发布的快照（没有新快照时返回上一次的 front）
+    FrameSnapshot acquire(){
+        if (middle.get().seq > front.seq) front = middle.getAndSet(front);
+        return front;
+    }
+}
@@ -0,0 +1,179 @@
+package engine;
+
+import entities.EntityStore;
+
+import java.util.Arrays;
+
+/**
+ * 海域内潜艇的均匀网格索引（broadphase）。
+ * 每个潜艇按包围盒中心落入唯一的格子，格子内容（潜艇存储的槽位号）以 CSR（cellStart + items）紧凑存放；
+ * 查询时按记录的最大半宽/半高扩展查询框，因此无需去重。
+ * 每个 tick 在实体更新后整体重建一次（O(n) 计数排序，数组复用不产生垃圾）；
+ * 重建之后新生成的潜艇要到下一次重建才会出现在索引中（潜艇在屏幕外生成，不影响命中）。
+ * 越界坐标被夹到边缘格子，保证屏幕外的实体也能被查询到。
+ * 槽位号在潜艇存储下一次 compact 之前有效，引擎保证 compact 之后才重建。
+ * 最近邻查询（导弹制导）使用重建时按格子顺序缓存的中心坐标，从查询点所在格子按环向外扩展。
+ */
+public final class SpatialGrid {
+    private final double originX, originY;
+    private final double cellSize;
+    private final int cols, rows;
+    private final int[] cellStart;  // 长度 cols*rows+1，cell c 的内容为 items[cellStart[c] .. cellStart[c+1])
+    private final int[] cursorFill; // 重建时的写入游标
+    private int[] itemCell = new int[64];
+    private int[] staging = new int[64];
+    private int[] items = new int[64];
+    private double[] stagingX = new double[64], stagingY = new double[64];
+    private double[] itemX = new double[64], itemY = new double[64]; // 与 items 对齐的包围盒中心
+    private int count = 0;
+    private double maxHalfW = 0, maxHalfH = 0;
+
+    public SpatialGrid(double minX, double minY, double maxX, double maxY, double cellSize){
+        this.originX = minX; this.originY = minY;
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, (int)Math.ceil((maxX - minX) / cellSize));
+        this.rows = Math.max(1, (int)Math.ceil((maxY - minY) / cellSize));
+        this.cellStart = new int[cols * rows + 1];
+        this.cursorFill = new int[cols * rows];
+    }
+
+    private int col(double x){
+        int c = (int)Math.floor((x - originX) / cellSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    private int row(double y){
+        int r = (int)Math.floor((y - originY) / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    // 用当前活跃潜艇重建索引
+    public void rebuild(EntityStore subs){
+        int n = subs.size();
+        if (items.length < n){
+            int cap = subs.capacity(); // 与存储同步扩容（n 不超过存储容量）
+            items = new int[cap];
+            staging = new int[cap];
+            itemCell = new int[cap];
+            stagingX = new double[cap]; stagingY = new double[cap];
+            itemX = new double[cap]; itemY = new double[cap];
+        }
+        Arrays.fill(cellStart, 0);
+        count = 0;
+        maxHalfW = 0; maxHalfH = 0;
+        // 第一轮：收集活跃潜艇及其格子，统计每格数量
+        for (int i = 0; i < n; i++){
+            if (!subs.isAlive(i)) continue;
+            int bx = subs.boxX(i), by = subs.boxY(i), bw = subs.boxW(i), bh = subs.boxH(i);
+            double cx = bx + bw / 2.0, cy = by + bh / 2.0;
+            int c = row(cy) * cols + col(cx);
+            staging[count] = i;
+            stagingX[count] = cx; stagingY[count] = cy;
+            itemCell[count] = c;
+            count++;
+            cellStart[c + 1]++;
+            if (bw / 2.0 > maxHalfW) maxHalfW = bw / 2.0;
+            if (bh / 2.0 > maxHalfH) maxHalfH = bh / 2.0;
+        }
+        // 第二轮：前缀和后按格子写入（计数排序）
+        for (int c = 0; c < cols * rows; c++) cellStart[c + 1] += cellStart[c];
+        System.arraycopy(cellStart, 0, cursorFill, 0, cols * rows);
+        for (int i = 0; i < count; i++){
+            int k = cursorFill[itemCell[i]]++;
+            items[k] = staging[i];
+            itemX[k] = stagingX[i]; itemY[k] = stagingY[i];
+        }
+    }
+
+    public int size(){ return count; }
+    // 索引内潜艇包围盒的最大半尺寸（用于圆形范围查询时扩展半径）
+    public double maxHalfExtent(){ return Math.max(maxHalfW, maxHalfH); }
+
+    public Cursor newCursor(){ return new Cursor(); }
+
+    /**
+     * 批量最近邻：对 n 个查询点 (qx[k], qy[k]) 求包围盒中心最近的潜艇槽位，写入 out[k]（索引为空时为 -1）。
+     * 每个查询从所在格子按环（Chebyshev 距离）向外扩展，已找到的最近距离不超过下一环的最小可能距离时停止，
+     * 潜艇分布较均匀时只需检查常数个格子。距离相同时取遍历顺序中的第一个，结果只取决于索引内容。
+     */
+    public void nearest(double[] qx, double[] qy, int n, int[] out){
+        for (int k = 0; k < n; k++) out[k] = nearest(qx[k], qy[k]);
+    }
+
+    // 单点最近邻，见 nearest(double[], double[], int, int[])
+    public int nearest(double x, double y){
+        if (count == 0) return -1;
+        int qc = col(x), qr = row(y);
+        int best = -1;
+        double bestD = Double.MAX_VALUE;
+        int maxRing = Math.max(cols, rows);
+        for (int ring = 0; ring < maxRing; ring++){
+            int c0 = qc - ring, c1 = qc + ring;
+            int rFrom = Math.max(0, qr - ring), rTo = Math.min(rows - 1, qr + ring);
+            for (int r = rFrom; r <= rTo; r++){
+                // 环的上下两行扫描整行，中间各行只扫描左右两端的格子
+                boolean edge = r == qr - ring || r == qr + ring;
+                int step = edge ? 1 : c1 - c0;
+                for (int c = c0; c <= c1; c += step){
+                    if (c < 0 || c >= cols) continue;
+                    int cell = r * cols + c;
+                    for (int k = cellStart[cell], end = cellStart[cell + 1]; k < end; k++){
+                        double dx = itemX[k] - x, dy = itemY[k] - y;
+                        double d2 = dx * dx + dy * dy;
+                        if (d2 < bestD){ bestD = d2; best = items[k]; }
+                    }
+                }
+            }
+            // 下一环中的任意点与查询点的距离至少为 ring 个格子宽
+            double reach = ring * cellSize;
+            if (best >= 0 && bestD <= reach * reach) break;
+        }
+        return best;
+    }
+
+    /**
+     * 查询游标：由调用方持有并复用，互不干扰（可嵌套使用不同游标）。
+     * 返回的是候选集合（superset），调用方仍需做精确判定。
+     */
+    public final class Cursor {
+        private int c0, c1, r0, r1;   // 格子范围（含）
+        private int col, row;         // 当前格子
+        private int k, end;           // 当前格子内的位置
+
+        // 候选：包围盒可能与给定矩形相交的潜艇
+        public Cursor overlapping(double minX, double minY, double maxX, double maxY){
+            return centersWithin(minX - maxHalfW - 1, minY - maxHalfH - 1, maxX + maxHalfW + 1, maxY + maxHalfH + 1);
+        }
+
+        // 候选：包围盒中心落在给定矩形内的潜艇
+        public Cursor centersWithin(double minX, double minY, double maxX, double maxY){
+            c0 = col(minX); c1 = col(maxX);
+            r0 = row(minY); r1 = row(maxY);
+            col = c0; row = r0;
+            k = cellStart[row * cols + col];
+            end = cellStart[row * cols + col + 1];
+            return this;
+        }
+
+        // 候选：中心距 (cx, cy) 不超过 radius + 潜艇半尺寸 的潜艇（圆形范围伤害使用）
+        public Cursor around(double cx, double cy, double radius){
+            double r = radius + maxHalfExtent() + 1;
+            return centersWithin(cx - r, cy - r, cx + r, cy + r);
+        }
+
+        // 下一个候选的槽位号，遍历结束返回 -1
+        public int next(){
+            if (row > r1) return -1;
+            while (k >= end){
+                if (++col > c1){
+                    col = c0;
+                    if (++row > r1) return -1;
+                }
+                int c = row * cols + col;
+                k = cellStart[c];
+                end = cellStart[c + 1];
+            }
+            return items[k++];
+        }
+    }
+}
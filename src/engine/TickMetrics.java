@@ -0,0 +1,140 @@
+package engine;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分阶段耗时统计：tick 的各阶段（输入、清理、实体更新、空间索引、导弹、深度引爆、碰撞、生成、快照发布、整个 tick）
+ * 以及渲染线程的每帧绘制，各自记录到 LatencyHistogram。另有两个延迟通道：INPUT_SIM 为玩家指令从按键到
+ * 模拟线程执行的时间，INPUT_PHOTON 为按键到包含其结果的帧绘制完成的时间。
+ *
+ * 每个阶段只有一个写线程（tick 阶段与 INPUT_SIM 为模拟线程，RENDER 与 INPUT_PHOTON 为渲染线程），按写线程自己的时钟每 INTERVAL_NANOS
+ * 把当前区间复制到“已发布”直方图后清零；读者（JMX、叠加层）只读已发布的副本，两者以副本对象为锁同步。
+ * 因此读到的是最近一个完整区间（默认 1 秒）的 p50/p99/max，记录路径上没有锁和分配。
+ */
+public final class TickMetrics implements TickMetricsMXBean {
+    public enum Phase {
+        INPUT, CLEANUP, UPDATE, BROADPHASE, MISSILES, DEPTH, COLLIDE, RESOLVE, SPAWN, PUBLISH, TICK, RENDER,
+        INPUT_SIM, INPUT_PHOTON;
+
+        // 由渲染线程写入的通道
+        public boolean isRender(){ return this == RENDER || this == INPUT_PHOTON; }
+    }
+
+    private static final long INTERVAL_NANOS = 1_000_000_000L;
+    private static final Phase[] PHASES = Phase.values();
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    // 单个阶段：写线程独占 active，发布时复制到 published
+    private static final class Channel {
+        final LatencyHistogram active = new LatencyHistogram();
+        final LatencyHistogram published = new LatencyHistogram();
+        long intervalStart = 0;
+    }
+
+    private final Channel[] channels = new Channel[PHASES.length];
+    private volatile long publishedSeq = 0;
+    private volatile int bombs, subs, explosions, missiles;
+    private ObjectName registeredName;
+
+    public TickMetrics(){
+        for (int i = 0; i < channels.length; i++) channels[i] = new Channel();
+    }
+
+    // 记录一次阶段耗时；now 为记录时刻（System.nanoTime），用于区间轮换
+    public void record(Phase p, long nanos, long now){
+        Channel c = channels[p.ordinal()];
+        if (c.intervalStart == 0) c.intervalStart = now;
+        else if (now - c.intervalStart >= INTERVAL_NANOS){
+            synchronized (c.published){ c.active.copyTo(c.published); }
+            c.active.reset();
+            c.intervalStart = now;
+            if (p == Phase.TICK) publishedSeq++;
+        }
+        c.active.record(nanos);
+    }
+
+    /**
+     * 立即发布模拟线程写入的各阶段（不含渲染线程的通道）的当前区间，例如无头运行结束时。
+     * 只能在模拟线程上、或模拟已停止后调用。
+     */
+    public void flush(){
+        for (Phase p : PHASES){
+            if (p.isRender()) continue;
+            Channel c = channels[p.ordinal()];
+            synchronized (c.published){ c.active.copyTo(c.published); }
+            c.active.reset();
+            c.intervalStart = 0;
+        }
+        publishedSeq++;
+    }
+
+    // tick 结束时记录实体数量
+    void counts(int bombs, int subs, int explosions, int missiles){
+        this.bombs = bombs; this.subs = subs; this.explosions = explosions; this.missiles = missiles;
+    }
+
+    // 每发布一次 TICK 区间加一（叠加层据此判断是否需要重绘）
+    public long publishedSeq(){ return publishedSeq; }
+
+    // 读取最近一个完整区间的统计（单位微秒）；out = {count, p50, p99, max}
+    public void read(Phase p, double[] out){
+        LatencyHistogram h = channels[p.ordinal()].published;
+        synchronized (h){
+            out[0] = h.count();
+            out[1] = h.percentile(0.50) / 1e3;
+            out[2] = h.percentile(0.99) / 1e3;
+            out[3] = h.max() / 1e3;
+        }
+    }
+
+    // 注册到平台 MBeanServer；同一进程内多个引擎以序号区分
+    public synchronized void register(){
+        if (registeredName != null) return;
+        try {
+            ObjectName name = new ObjectName("navalwar:type=TickMetrics,name=engine-" + instances.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            registeredName = name;
+        } catch (JMException e){
+            System.err.println("TickMetrics MBean registration failed: " + e);
+        }
+    }
+
+    public synchronized void unregister(){
+        if (registeredName == null) return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try { server.unregisterMBean(registeredName); } catch (JMException ignored){ }
+        registeredName = null;
+    }
+
+    // —— TickMetricsMXBean ——
+    @Override public String[] getPhases(){
+        String[] names = new String[PHASES.length];
+        for (int i = 0; i < names.length; i++) names[i] = PHASES[i].name().toLowerCase();
+        return names;
+    }
+    @Override public long[] getCounts(){
+        long[] out = new long[PHASES.length];
+        double[] v = new double[4];
+        for (int i = 0; i < out.length; i++){ read(PHASES[i], v); out[i] = (long) v[0]; }
+        return out;
+    }
+    @Override public double[] getP50Micros(){ return column(1); }
+    @Override public double[] getP99Micros(){ return column(2); }
+    @Override public double[] getMaxMicros(){ return column(3); }
+    @Override public long getIntervalMillis(){ return INTERVAL_NANOS / 1_000_000L; }
+    @Override public int getBombs(){ return bombs; }
+    @Override public int getSubs(){ return subs; }
+    @Override public int getExplosions(){ return explosions; }
+    @Override public int getMissiles(){ return missiles; }
+
+    private double[] column(int k){
+        double[] out = new double[PHASES.length];
+        double[] v = new double[4];
+        for (int i = 0; i < out.length; i++){ read(PHASES[i], v); out[i] = v[k]; }
+        return out;
+    }
+}
@@ -0,0 +1,18 @@
+package engine;
+
+/**
+ * TickMetrics 的 JMX 视图（ObjectName 为 navalwar:type=TickMetrics,name=...）。
+ * 各数组按 getPhases() 的顺序排列，数值取自最近一个已完成的统计区间。
+ */
+public interface TickMetricsMXBean {
+    String[] getPhases();
+    long[] getCounts();
+    double[] getP50Micros();
+    double[] getP99Micros();
+    double[] getMaxMicros();
+    long getIntervalMillis();
+    int getBombs();
+    int getSubs();
+    int getExplosions();
+    int getMissiles();
+}
@@ -1,38 +1,64 @@
 package entities;
 
-import entities.Entity.Rect;
-import entities.Explosion;
-import engine.GameEngine;
+import java.nio.ByteBuffer;
+
 
 public class Bomb extends Entity {
-    private double vy = 2.2;
-    private boolean exploded = false;
     private static final double GRAVITY = 0.06;
+    // 列映射：vy = 下落速度，tag = 是否已爆炸
+
+    private Bomb(EntityStore store){ super(store); }
+
+    // 在 store 中创建炸弹（优先复用对象池中的视图）
+    public static Bomb obtain(EntityStore store, double x, double y){
+        Bomb b = (Bomb) store.reuse();
+        if (b == null) b = new Bomb(store);
+        b.init(x, y);
+        return b;
+    }
 
-    public Bomb(double x, double y){
-        this.x = x; this.y = y;
-        this.w = 24; this.h = 36;
-        this.active = true;
+    // 从检查点恢复整个炸弹存储（见 EntityStore.readFrom）
+    public static void readStore(EntityStore store, ByteBuffer in){
+        store.readFrom(in, () -> { Entity v = store.reuse(); return v != null ? v : new Bomb(store); });
+    }
+
+    private void init(double x, double y){
+        store.place(slot, x, y);
+        store.w[slot] = 24; store.h[slot] = 36;
+        store.vy[slot] = 2.2;
     }
 
     @Override
     public void update(long dt){
-        if (!active) return;
-        // update position (dt in ms, use simple model)
-        double steps = Math.max(1, dt/16.0);
-        this.y += vy * steps;
-        vy += GRAVITY * steps;
+        if (isActive()) step(store, slot, dt);
+    }
+
+    // 批量更新：顺序遍历列数组，无分配
+    public static void updateAll(EntityStore s, long dt){
+        for (int i = 0, n = s.size; i < n; i++){
+            if (s.isAlive(i)) step(s, i, dt);
+        }
+    }
+
+    // 并行更新 [from, to) 范围（各槽位互不影响，无需对齐）
+    public static void updateRange(EntityStore s, int from, int to, long dt){
+        for (int i = from; i < to; i++){
+            if (s.isAlive(i)) step(s, i, dt);
+        }
+    }
+
+    // 推进 k = steps(dt) 个基准步：逐步 y += vy; vy += g 的闭式和，k 步之后与逐步推进相同（k = 1 时即逐步推进）
+    private static void step(EntityStore s, int i, long dt){
+        double k = Entity.steps(dt);
+        s.y[i] += s.vy[i] * k + GRAVITY * (k * (k - 1) / 2);
+        s.vy[i] += GRAVITY * k;
     }
 
     public void explode(int radius){
-        if (exploded) return;
-        exploded = true;
-        active = false;
+        if (store.tag[slot] != 0) return;
+        store.tag[slot] = 1;
+        setActive(false);
         // 爆炸由外部 engine 负责创建 Explosion 并对潜艇造成效果
         // 为了保持脱耦，这里不直接访问 engine；由使用方创建 Explosion
     }
-
-    @Override
-    public Rect getBox(){ return new Rect((int)x, (int)y, (int)w, (int)h); }
 }
-
@@ -1,19 +1,83 @@
 package entities;
 
+/**
+ * 所有游戏实体的基类：实体状态保存在 EntityStore 的列数组中，
+ * Entity 对象只是 (store, slot) 视图，负责提供面向对象的访问接口。
+ */
 public abstract class Entity {
-    protected double x, y;
-    protected double w, h;
-    protected boolean active = true;
+    // 速度等按每 STEP_MS 毫秒（基准步长）给出；更长的 dt 按 steps(dt) 个基准步推进
+    public static final double STEP_MS = 16.0;
+
+    protected EntityStore store;
+    protected int slot = -1; // 由 EntityStore 维护；被 compact 移除后为 -1
+
+    protected Entity(EntityStore store){
+        store.add(this);
+    }
 
     public abstract void update(long dt);
-    public boolean isActive(){ return active; }
-    public void setActive(boolean v){ this.active = v; }
+    public boolean isActive(){ return slot >= 0 && store.isAlive(slot); }
+    public void setActive(boolean v){ if (slot >= 0) store.setAlive(slot, v); }
+    // 稳定标识（槽位会因 compact 变化，id 不会）
+    public int getId(){ return store.id[slot]; }
+
+    // 包围盒（每次调用分配一个 Rect；热路径请使用下面的原始类型访问器）
+    public Rect getBox(){ return new Rect(boxX(), boxY(), boxW(), boxH()); }
+
+    // 无分配的包围盒/中心访问器（整型取整规则与 getBox 一致）
+    public int boxX(){ return (int)store.x[slot]; }
+    public int boxY(){ return (int)store.y[slot]; }
+    public int boxW(){ return (int)store.w[slot]; }
+    public int boxH(){ return (int)store.h[slot]; }
+    public double centerX(){ return boxX() + boxW()/2.0; }
+    public double centerY(){ return boxY() + boxH()/2.0; }
+
+    // 矩形相交（仅边界接触不算相交），引擎与 UI 共用
+    public static boolean intersects(int ax, int ay, int aw, int ah, int bx, int by, int bw, int bh){
+        return ax < bx + bw && ax + aw > bx && ay < by + bh && ay + ah > by;
+    }
 
-    public Rect getBox(){ return new Rect((int)x, (int)y, (int)w, (int)h); }
+    // dt 对应的基准步数，不足一步按一步（与逐 tick 推进一致）
+    public static double steps(long dt){ return Math.max(1, dt / STEP_MS); }
+
+    /**
+     * 连续碰撞（扫掠 AABB）：矩形 a 在 t∈[0, 1] 内从 (ax, ay) 匀速平移 (dx, dy)，b 静止；
+     * 返回二者开始重叠的最早时刻 t（与 intersects 一样仅接触不算），整段都不重叠时返回 -1。
+     * 两者都在运动时，以相对位移调用（a 的起点加上 b 的位移，a 的位移减去 b 的位移，b 取终点）。
+     */
+    public static double sweep(double ax, double ay, double aw, double ah, double dx, double dy,
+                               double bx, double by, double bw, double bh){
+        double enter = 0, exit = 1;
+        // 每个轴上重叠的时间区间：b 的左边界 - a 的右边界 < t·d < b 的右边界 - a 的左边界
+        double lo = bx - ax - aw, hi = bx + bw - ax;
+        if (dx == 0){ if (lo >= 0 || hi <= 0) return -1; }
+        else {
+            double t0 = (dx > 0 ? lo : hi) / dx, t1 = (dx > 0 ? hi : lo) / dx;
+            if (t0 > enter) enter = t0;
+            if (t1 < exit) exit = t1;
+        }
+        lo = by - ay - ah; hi = by + bh - ay;
+        if (dy == 0){ if (lo >= 0 || hi <= 0) return -1; }
+        else {
+            double t0 = (dy > 0 ? lo : hi) / dy, t1 = (dy > 0 ? hi : lo) / dy;
+            if (t0 > enter) enter = t0;
+            if (t1 < exit) exit = t1;
+        }
+        return enter < exit ? enter : -1;
+    }
+
+    public static boolean intersects(Entity a, Entity b){
+        return intersects(a.boxX(), a.boxY(), a.boxW(), a.boxH(), b.boxX(), b.boxY(), b.boxW(), b.boxH());
+    }
+
+    // 两点距离平方
+    public static double distSq(double ax, double ay, double bx, double by){
+        double dx = bx - ax, dy = by - ay;
+        return dx*dx + dy*dy;
+    }
 
     public static class Rect {
         public final int x, y, w, h;
         public Rect(int x, int y, int w, int h){ this.x = x; this.y = y; this.w = w; this.h = h; }
     }
 }
-
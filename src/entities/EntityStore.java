@@ -0,0 +1,287 @@
+package entities;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * 同类实体的结构化数组（SoA）存储。每个实体占据一个槽位（slot），
+ * 状态以原始类型列存放：位置/尺寸/速度为 double[]，血量/分值/标签为 int[]，
+ * 存活状态是紧凑的位图 alive。实体类（Bomb/Submarine/...）只是指向槽位的轻量视图。
+ *
+ * px/py 是上一 tick 开始时的位置（渲染插值与长步长的扫掠检测用）。实体由 place 设置出生位置时上一位置也取出生位置，
+ * 因此 tick 内（输入回调中）新建的弹体第一次扫掠从出生点开始，与 tick 之前新建时相同；未经 place 的新槽位为 NaN。
+ *
+ * 各列的含义由实体类型决定：
+ *  - t   : 连续量（潜艇的浮动相位、爆炸/导弹的年龄 ms）
+ *  - tag : 离散量（潜艇类型序号、爆炸半径、炸弹是否已爆）
+ *
+ * compact() 以 swap-remove 方式移除死亡实体：末尾槽位搬入空洞，O(死亡数)，不分配内存；
+ * 被移除的视图 slot 置为 -1，之后不可再读取其坐标。槽位编号因此只在两次 compact 之间稳定，
+ * 跨 tick 需要稳定标识时使用 id 列。
+ *
+ * 被移除的视图进入本存储的对象池（上限 poolCapacity），由各实体的 obtain(...) 工厂复用，
+ * 高频生成/销毁时不再产生新对象。视图一旦失效就可能被复用，持有者不得在实体失效后继续引用它。
+ */
+public final class EntityStore {
+    double[] x, y, w, h, vx, vy, t, px, py;
+    int[] hp, score, tag, id;
+    long[] alive;
+    Entity[] views;
+    int size = 0;
+    private int live = 0;
+    private int nextId = 1;
+    // 视图对象池
+    private Entity[] pool = new Entity[16];
+    private int pooled = 0;
+    private int poolCapacity = DEFAULT_POOL_CAPACITY;
+    private long poolHits = 0, poolMisses = 0;
+
+    public static final int DEFAULT_POOL_CAPACITY = 4096;
+
+    public EntityStore(int capacity){
+        allocate(Math.max(1, capacity));
+    }
+
+    private void allocate(int cap){
+        x = grow(x, cap); y = grow(y, cap); w = grow(w, cap); h = grow(h, cap);
+        vx = grow(vx, cap); vy = grow(vy, cap); t = grow(t, cap);
+        px = grow(px, cap); py = grow(py, cap);
+        hp = grow(hp, cap); score = grow(score, cap); tag = grow(tag, cap); id = grow(id, cap);
+        alive = alive == null ? new long[(cap + 63) >>> 6] : Arrays.copyOf(alive, (cap + 63) >>> 6);
+        views = views == null ? new Entity[cap] : Arrays.copyOf(views, cap);
+    }
+
+    private static double[] grow(double[] a, int cap){ return a == null ? new double[cap] : Arrays.copyOf(a, cap); }
+    private static int[] grow(int[] a, int cap){ return a == null ? new int[cap] : Arrays.copyOf(a, cap); }
+
+    // 为视图分配新槽位（列清零、标记存活、分配 id）
+    int add(Entity view){
+        if (size == views.length) allocate(size * 2);
+        int i = size++;
+        x[i] = y[i] = w[i] = h[i] = vx[i] = vy[i] = t[i] = 0;
+        px[i] = py[i] = Double.NaN;
+        hp[i] = score[i] = tag[i] = 0;
+        id[i] = nextId++;
+        views[i] = view;
+        alive[i >>> 6] |= 1L << i;
+        live++;
+        view.store = this;
+        view.slot = i;
+        return i;
+    }
+
+    // 设置新建实体 i 的出生位置（上一位置同为出生位置）
+    void place(int i, double x, double y){
+        this.x[i] = px[i] = x;
+        this.y[i] = py[i] = y;
+    }
+
+    // 从对象池取出一个视图并为其分配新槽位；池为空时返回 null（由调用方 new 一个）
+    Entity reuse(){
+        if (pooled == 0){ poolMisses++; return null; }
+        poolHits++;
+        Entity v = pool[--pooled];
+        pool[pooled] = null;
+        add(v);
+        return v;
+    }
+
+    private void recycle(Entity v){
+        v.slot = -1;
+        if (pooled >= poolCapacity) return;
+        if (pooled == pool.length) pool = Arrays.copyOf(pool, Math.min(poolCapacity, pool.length * 2));
+        pool[pooled++] = v;
+    }
+
+    // 对象池上限（0 表示不池化）；超出部分立即丢弃
+    public void setPoolCapacity(int cap){
+        poolCapacity = Math.max(0, cap);
+        while (pooled > poolCapacity) pool[--pooled] = null;
+    }
+    public int getPoolCapacity(){ return poolCapacity; }
+    public int pooledCount(){ return pooled; }
+    public long poolHits(){ return poolHits; }
+    public long poolMisses(){ return poolMisses; }
+
+    public boolean isAlive(int i){ return (alive[i >>> 6] & (1L << i)) != 0; }
+
+    void setAlive(int i, boolean v){
+        if (isAlive(i) == v) return;
+        if (v){ alive[i >>> 6] |= 1L << i; live++; }
+        else { alive[i >>> 6] &= ~(1L << i); live--; }
+    }
+
+    // 并行更新使用：只清除存活位，不更新 live 计数（合并后调用 recountLive）。
+    // 多线程同时调用时，各线程负责的槽位范围必须按 ALIGN 对齐，保证不共享 alive 中的同一个 long
+    void clearAliveBit(int i){ alive[i >>> 6] &= ~(1L << i); }
+
+    // 槽位范围并行划分的对齐单位（alive 位图一个 long 覆盖的槽位数）
+    public static final int ALIGN = 64;
+
+    // 按位图重新统计存活数（并行阶段结束后调用，O(size/64)）
+    public void recountLive(){
+        int n = 0;
+        for (int k = 0, words = (size + 63) >>> 6; k < words; k++) n += Long.bitCount(alive[k]);
+        live = n;
+    }
+
+    /**
+     * 移除所有死亡实体（swap-remove），返回移除数量。
+     */
+    public int compact(){
+        int removed = 0;
+        int i = 0;
+        while (i < size){
+            if (isAlive(i)){ i++; continue; }
+            int last = size - 1;
+            recycle(views[i]);
+            if (i != last) move(last, i);
+            views[last] = null;
+            alive[last >>> 6] &= ~(1L << last);
+            size--;
+            removed++;
+            // 不前进 i：搬入的实体也需要检查
+        }
+        return removed;
+    }
+
+    private void move(int from, int to){
+        x[to] = x[from]; y[to] = y[from]; w[to] = w[from]; h[to] = h[from];
+        vx[to] = vx[from]; vy[to] = vy[from]; t[to] = t[from];
+        px[to] = px[from]; py[to] = py[from];
+        hp[to] = hp[from]; score[to] = score[from]; tag[to] = tag[from]; id[to] = id[from];
+        if (isAlive(from)) alive[to >>> 6] |= 1L << to; else alive[to >>> 6] &= ~(1L << to);
+        views[to] = views[from];
+        views[to].slot = to;
+    }
+
+    /**
+     * 把槽位 i 的实体（全部列，保留 id）复制为 to 中的新槽位并返回该槽位，本槽位标记失效（由下一次 compact 移除）。
+     * newView 在 to 中登记一个新视图（同 readFrom 的约定）。用于在存储之间迁移实体（活跃/休眠分区）。
+     */
+    int moveTo(int i, EntityStore to, Supplier<Entity> newView){
+        int j = to.size;
+        newView.get();
+        to.x[j] = x[i]; to.y[j] = y[i]; to.w[j] = w[i]; to.h[j] = h[i];
+        to.vx[j] = vx[i]; to.vy[j] = vy[i]; to.t[j] = t[i];
+        to.px[j] = px[i]; to.py[j] = py[i];
+        to.hp[j] = hp[i]; to.score[j] = score[i]; to.tag[j] = tag[i]; to.id[j] = id[i];
+        setAlive(i, false);
+        return j;
+    }
+
+    // 记录当前位置作为“上一状态”（每个 tick 开始时调用）
+    public void savePrevious(){
+        System.arraycopy(x, 0, px, 0, size);
+        System.arraycopy(y, 0, py, 0, size);
+    }
+
+    // 清空全部实体（视图全部失效）
+    public void clear(){
+        for (int i = 0; i < size; i++){ recycle(views[i]); views[i] = null; }
+        Arrays.fill(alive, 0L);
+        size = 0;
+        live = 0;
+    }
+
+    /**
+     * 把存活实体的模拟状态（位置、尺寸、速度、t、hp、分值、标签、id，按槽位顺序）混入哈希 acc 并返回。
+     * 不含渲染插值用的上一位置；录制回放与检查点据此逐位比较状态。
+     */
+    public long hash(long acc){
+        for (int i = 0; i < size; i++){
+            if (!isAlive(i)) continue;
+            acc = mix(acc, Double.doubleToLongBits(x[i]));  acc = mix(acc, Double.doubleToLongBits(y[i]));
+            acc = mix(acc, Double.doubleToLongBits(w[i]));  acc = mix(acc, Double.doubleToLongBits(h[i]));
+            acc = mix(acc, Double.doubleToLongBits(vx[i])); acc = mix(acc, Double.doubleToLongBits(vy[i]));
+            acc = mix(acc, Double.doubleToLongBits(t[i]));
+            acc = mix(acc, ((long)hp[i] << 32) ^ score[i]); acc = mix(acc, ((long)tag[i] << 32) ^ id[i]);
+        }
+        return mix(acc, live);
+    }
+
+    // 检查点中本存储占用的字节数（见 writeTo）
+    public int checkpointBytes(){
+        return 8 + size * (9 * 8 + 4 * 4) + ((size + 63) >>> 6) * 8;
+    }
+
+    /**
+     * 写入检查点：槽位数、下一个 id、存活位图与全部槽位（含尚未 compact 的死亡槽位）的各列，
+     * 恢复后槽位顺序与原存储完全一致。列以批量 put 写入，适合直接写入内存映射缓冲区。
+     */
+    public void writeTo(ByteBuffer out){
+        out.putInt(size).putInt(nextId);
+        int words = (size + 63) >>> 6;
+        out.asLongBuffer().put(alive, 0, words);
+        out.position(out.position() + words * 8);
+        for (double[] col : new double[][]{ x, y, w, h, vx, vy, t, px, py }){
+            out.asDoubleBuffer().put(col, 0, size);
+            out.position(out.position() + size * 8);
+        }
+        for (int[] col : new int[][]{ hp, score, tag, id }){
+            out.asIntBuffer().put(col, 0, size);
+            out.position(out.position() + size * 4);
+        }
+    }
+
+    /**
+     * 从检查点恢复（writeTo 的逆操作）：现有视图全部失效，newView 为每个槽位创建并登记一个视图
+     * （各实体类的 readStore 提供），随后覆盖各列、存活位图与 id 计数。
+     */
+    void readFrom(ByteBuffer in, Supplier<Entity> newView){
+        clear();
+        int n = in.getInt(), next = in.getInt();
+        if (n < 0) throw new IllegalArgumentException("negative store size " + n);
+        for (int i = 0; i < n; i++) newView.get();
+        int words = (n + 63) >>> 6;
+        Arrays.fill(alive, 0L);
+        in.asLongBuffer().get(alive, 0, words);
+        in.position(in.position() + words * 8);
+        for (double[] col : new double[][]{ x, y, w, h, vx, vy, t, px, py }){
+            in.asDoubleBuffer().get(col, 0, n);
+            in.position(in.position() + n * 8);
+        }
+        for (int[] col : new int[][]{ hp, score, tag, id }){
+            in.asIntBuffer().get(col, 0, n);
+            in.position(in.position() + n * 4);
+        }
+        nextId = next;
+        recountLive();
+    }
+
+    // 64 位混合（乘法 + 移位异或，同 SplitMix64 的收尾步骤）
+    public static long mix(long h, long v){
+        h ^= v;
+        h *= 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 31);
+    }
+
+    // 槽位数（含尚未 compact 的死亡实体）
+    public int size(){ return size; }
+    // 存活实体数
+    public int liveCount(){ return live; }
+    // 当前槽位容量（超过时按倍数扩容）
+    public int capacity(){ return views.length; }
+
+    public Entity view(int i){ return views[i]; }
+    public int id(int i){ return id[i]; }
+    public double x(int i){ return x[i]; }
+    public double y(int i){ return y[i]; }
+    public double w(int i){ return w[i]; }
+    public double h(int i){ return h[i]; }
+    // 上一 tick 开始时的位置（本 tick 新建的实体为出生位置）；NaN 时返回当前位置
+    public double prevX(int i){ double v = px[i]; return v != v ? x[i] : v; }
+    public double prevY(int i){ double v = py[i]; return v != v ? y[i] : v; }
+    public double vx(int i){ return vx[i]; }
+    public double vy(int i){ return vy[i]; }
+    public int tag(int i){ return tag[i]; }
+    public int hp(int i){ return hp[i]; }
+    // 按槽位的整型包围盒与中心（取整规则同 Entity.getBox）
+    public int boxX(int i){ return (int)x[i]; }
+    public int boxY(int i){ return (int)y[i]; }
+    public int boxW(int i){ return (int)w[i]; }
+    public int boxH(int i){ return (int)h[i]; }
+    public double centerX(int i){ return (int)x[i] + (int)w[i]/2.0; }
+    public double centerY(int i){ return (int)y[i] + (int)h[i]/2.0; }
+}
@@ -1,46 +1,56 @@
 package entities;
 
-import entities.Entity.Rect;
-import engine.GameEngine;
-import java.util.List;
+import java.nio.ByteBuffer;
 
 public class Explosion extends Entity {
-    private int radius;
-    private int lifetime = 500; // ms total
-    private int age = 0;
-
-    // 构造时立即对周围潜艇造成伤害，并通过 engine.registerKill 标记得分
-    public Explosion(double x, double y, int radius, List<Submarine> subs, GameEngine engine){
-        this.x = x; this.y = y; this.radius = radius;
-        this.w = radius*2; this.h = radius*2;
-        this.active = true;
-
-        // 范围伤害判定（中心到潜艇中心）
-        for (Submarine s : subs){
-            if (!s.isActive()) continue;
-            double sx = s.getBox().x + s.getBox().w/2.0;
-            double sy = s.getBox().y + s.getBox().h/2.0;
-            double dx = sx - this.x;
-            double dy = sy - this.y;
-            double dist = Math.sqrt(dx*dx + dy*dy);
-            double threshold = radius + Math.max(s.getBox().w, s.getBox().h)/2.0;
-            if (dist <= threshold){
-                s.damage(1);
-                if (!s.isActive()){
-                    // 使用潜艇自身的分值（RED=20, BLACK=10）
-                    engine.registerKill(s, s.getScoreValue());
-                }
-            }
-        }
-        // engine 可存储该 Explosion 以便渲染/生命周期管理
-        engine.addExplosion(this);
+    private static final int LIFETIME = 500; // ms total
+    // 列映射：tag = 半径，t = 已存在时间（ms）
+
+    private Explosion(EntityStore store){ super(store); }
+
+    // 从检查点恢复整个爆炸存储（见 EntityStore.readFrom）
+    public static void readStore(EntityStore store, ByteBuffer in){
+        store.readFrom(in, () -> { Entity v = store.reuse(); return v != null ? v : new Explosion(store); });
+    }
+
+    // 创建爆炸（优先复用对象池中的视图）。只是数据：范围伤害与计分由 GameEngine 在结算阶段统一处理
+    public static Explosion obtain(EntityStore store, double x, double y, int radius){
+        Explosion e = (Explosion) store.reuse();
+        if (e == null) e = new Explosion(store);
+        e.init(x, y, radius);
+        return e;
+    }
+
+    private void init(double x, double y, int radius){
+        store.place(slot, x, y); store.tag[slot] = radius;
+        store.w[slot] = radius*2; store.h[slot] = radius*2;
+    }
+
+    // 潜艇 i 是否在半径 radius、中心 (x, y) 的爆炸范围内（中心到潜艇中心，按潜艇较长边放宽）
+    public static boolean inBlast(double x, double y, int radius, EntityStore subs, int i){
+        double threshold = radius + Math.max(subs.boxW(i), subs.boxH(i))/2.0;
+        return distSq(x, y, subs.centerX(i), subs.centerY(i)) <= threshold*threshold;
     }
 
     @Override
-    public void update(long dt){
-        age += dt;
-        if (age >= lifetime) active = false;
+    public void update(long dt){ if (step(store, slot, dt)) setActive(false); }
+
+    // 批量更新：累计年龄，超过寿命即失效
+    public static void updateAll(EntityStore s, long dt){
+        for (int i = 0, n = s.size; i < n; i++) if (step(s, i, dt)) s.setAlive(i, false);
+    }
+
+    // 并行更新 [from, to) 范围（范围按 EntityStore.ALIGN 对齐）；不更新存活计数，全部范围结束后调用 recountLive
+    public static void updateRange(EntityStore s, int from, int to, long dt){
+        for (int i = from; i < to; i++) if (step(s, i, dt)) s.clearAliveBit(i);
+    }
+
+    // 累计年龄，返回是否已超过寿命
+    private static boolean step(EntityStore s, int i, long dt){
+        s.t[i] += dt;
+        return s.t[i] >= LIFETIME;
     }
 
-    public boolean isDone(){ return !active; }
+    public int getRadius(){ return store.tag[slot]; }
+    public boolean isDone(){ return !isActive(); }
 }
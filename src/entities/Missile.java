@@ -1,90 +1,128 @@
 package entities;
 
 import engine.GameEngine;
-import java.util.List;
+
+import java.nio.ByteBuffer;
 
 /**
- * 简单的追踪导弹实体（由 UI 创建并维护）。
- * 导弹会寻找最近的 active Submarine 并朝其方向移动。
- * 命中检测与爆炸由创建者（GameWindow）在检测到碰撞时负责触发 Explosion。
+ * 简单的追踪导弹实体（由 GameEngine 创建并统一更新）。
+ * 导弹朝最近的 active Submarine 方向移动；目标由引擎每 tick 对全部导弹做一次批量最近邻查询得到
+ * （SpatialGrid.nearest），命中检测与爆炸也由引擎负责。
  */
 public class Missile extends Entity {
-    private double vx = 0, vy = -3;
-    private double speed = 5.0; // pixels per tick unit (scaled by dt in UI)
-    private int lifetime = 8000; // ms
-    private int age = 0;
+    private static final double SPEED = 5.0; // pixels per tick unit (scaled by dt)
+    private static final int LIFETIME = 8000; // ms
+    private static final double MARGIN = 100; // 出界判定：世界边界外的余量
+    // 列映射：vx/vy = 速度，t = 已飞行时间（ms）
     private final GameEngine engine;
 
-    public Missile(double cx, double cy, GameEngine engine){
-        this.w = 24; this.h = 10;
-        this.x = cx - this.w/2.0;
-        this.y = cy - this.h/2.0;
-        this.active = true;
+    private Missile(GameEngine engine){
+        super(engine.getMissileStore());
         this.engine = engine;
     }
 
+    // 在 (cx, cy) 发射导弹（优先复用对象池中的视图）
+    public static Missile launch(double cx, double cy, GameEngine engine){
+        Missile m = (Missile) engine.getMissileStore().reuse();
+        if (m == null) m = new Missile(engine);
+        m.init(cx, cy);
+        return m;
+    }
+
+    // 从检查点恢复 engine 的导弹存储（见 EntityStore.readFrom）
+    public static void readStore(GameEngine engine, ByteBuffer in){
+        EntityStore store = engine.getMissileStore();
+        store.readFrom(in, () -> { Entity v = store.reuse(); return v != null ? v : new Missile(engine); });
+    }
+
+    private void init(double cx, double cy){
+        EntityStore store = this.store;
+        store.t[slot] = 0;
+        store.w[slot] = 24; store.h[slot] = 10;
+        store.place(slot, cx - 24/2.0, cy - 10/2.0);
+        store.vx[slot] = 0; store.vy[slot] = -3;
+    }
+
     /**
-     * dt in ms
+     * dt in ms；单枚导弹单独更新时自行查询一次最近目标（引擎内使用 updateAll 批量更新）
      */
     public void update(long dt){
-        if (!active) return;
-        age += dt;
-        if (age >= lifetime) { active = false; return; }
-
-        // 找到最近的目标
-        List<Submarine> subs = engine.getSubs();
-        Submarine target = null;
-        double bestDist = Double.MAX_VALUE;
-        for (Submarine s : subs){
-            if (!s.isActive()) continue;
-            double sx = s.getBox().x + s.getBox().w/2.0;
-            double sy = s.getBox().y + s.getBox().h/2.0;
-            double mx = this.x + this.w/2.0;
-            double my = this.y + this.h/2.0;
-            double dx = sx - mx;
-            double dy = sy - my;
-            double d2 = dx*dx + dy*dy;
-            if (d2 < bestDist){ bestDist = d2; target = s; }
+        if (!isActive()) return;
+        int target = engine.getSubIndex().nearest(aimX(store, slot), aimY(store, slot));
+        step(store, slot, dt, target, engine.getSubStore(), engine.getWidth(), engine.getHeight());
+    }
+
+    // 飞行时间已到（本 tick 因超时失效，没有移动）
+    public static boolean expired(EntityStore m, int i){ return m.t[i] >= LIFETIME; }
+
+    // 制导查询点：导弹包围盒中心
+    public static double aimX(EntityStore m, int i){ return m.x[i] + m.w[i]/2.0; }
+    public static double aimY(EntityStore m, int i){ return m.y[i] + m.h[i]/2.0; }
+
+    /**
+     * 批量更新：targets[i] 为第 i 个槽位导弹的目标潜艇槽位（-1 表示没有目标），
+     * 由调用方事先通过一次批量最近邻查询得到。worldWidth/worldHeight 用于出界判定。
+     */
+    public static void updateAll(EntityStore m, int[] targets, EntityStore subs, long dt, int worldWidth, int worldHeight){
+        for (int i = 0, n = m.size; i < n; i++){
+            if (m.isAlive(i)) step(m, i, dt, targets[i], subs, worldWidth, worldHeight);
         }
+    }
+
+    private static void step(EntityStore m, int i, long dt, int target, EntityStore subs, int worldWidth, int worldHeight){
+        m.t[i] += dt;
+        if (m.t[i] >= LIFETIME) { m.setAlive(i, false); return; }
+        double x = m.x[i], y = m.y[i];
+        double mx = aimX(m, i), my = aimY(m, i);
+        double vx, vy;
 
         double mv = (double)dt / 16.0; // 标准化到帧率基准，保持速度稳定
-        if (target != null){
-            double sx = target.getBox().x + target.getBox().w/2.0;
-            double sy = target.getBox().y + target.getBox().h/2.0;
-            double mx = this.x + this.w/2.0;
-            double my = this.y + this.h/2.0;
+        vx = m.vx[i]; vy = m.vy[i];
+        if (target >= 0){
+            // 目标若在本 tick 内已被击毁，仍朝其最后位置飞行一个 tick，下一 tick 重新选择目标
+            double sx = subs.centerX(target);
+            double sy = subs.centerY(target);
             double dx = sx - mx;
             double dy = sy - my;
             double dist = Math.sqrt(dx*dx + dy*dy);
             if (dist > 0.1){
                 double nx = dx / dist;
                 double ny = dy / dist;
-                this.vx = nx * speed;
-                this.vy = ny * speed;
+                vx = nx * SPEED;
+                vy = ny * SPEED;
             }
         } else {
             // 没有目标则向上
-            this.vx = 0;
-            this.vy = -speed;
+            vx = 0;
+            vy = -SPEED;
         }
 
-        this.x += vx * mv;
-        this.y += vy * mv;
+        x += vx * mv;
+        y += vy * mv;
+        m.x[i] = x; m.y[i] = y; m.vx[i] = vx; m.vy[i] = vy;
 
-        // 出界或超时失效
-        if (this.y < -100 || this.y > engine.getHeight() + 100 || this.x < -2000 || this.x > 2000) active = false;
+        // 出界（世界四周外扩 MARGIN）或超时失效
+        if (y < -MARGIN || y > worldHeight + MARGIN || x < -MARGIN || x > worldWidth + MARGIN) m.setAlive(i, false);
     }
 
-    public boolean isActive(){ return active; }
-    public void setActive(boolean v){ this.active = v; }
-
     // 新增：返回当前朝向角（弧度），用于 UI 旋转图片（atan2(vy, vx)）
-    public double getAngle(){
+    public double getAngle(){ return angleOf(store.vx[slot], store.vy[slot]); }
+
+    // 由速度计算朝向角（快照渲染时使用）
+    public static double angleOf(double vx, double vy){
         // 若速度为零则向上（-PI/2），避免 NaN
         if (vx == 0 && vy == 0) return -Math.PI/2.0;
         return Math.atan2(vy, vx);
     }
 
-    @Override
-    public Rect getBox(){ return new Rect((int)Math.round(x), (int)Math.round(y), (int)Math.round(w), (int)Math.round(h)); }
+    // 导弹包围盒按四舍五入取整
+    @Override public int boxX(){ return (int)Math.round(store.x[slot]); }
+    @Override public int boxY(){ return (int)Math.round(store.y[slot]); }
+    @Override public int boxW(){ return (int)Math.round(store.w[slot]); }
+    @Override public int boxH(){ return (int)Math.round(store.h[slot]); }
+    // 按槽位的导弹包围盒（同上，四舍五入）
+    public static int boxX(EntityStore m, int i){ return (int)Math.round(m.x[i]); }
+    public static int boxY(EntityStore m, int i){ return (int)Math.round(m.y[i]); }
+    public static int boxW(EntityStore m, int i){ return (int)Math.round(m.w[i]); }
+    public static int boxH(EntityStore m, int i){ return (int)Math.round(m.h[i]); }
 }
@@ -2,49 +2,105 @@ package entities;
 
 import entities.Entity.Rect;
 import entities.Bomb;
+import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class Ship extends Entity {
     private final int worldWidth;
     private final double speed = 4.8; // 每 tick 移动像素（被 caller 的 dt 控制）
     private double cooldown = 0; // ms
-    private final double dropInterval = 400; // ms
+    private final double dropInterval; // ms
+    private double missileCooldown = 0; // ms
+    private final double missileInterval; // ms
 
     // 新增：朝向，-1 为左，+1 为右（默认向右）
     private int facing = 1;
 
+    // 军舰只有一艘，使用独立的单槽位存储
     public Ship(double x, double y, int worldWidth){
-        this.x = x; this.y = y; this.w = 100; this.h = 48;
+        this(x, y, worldWidth, 400, 5000);
+    }
+
+    // 指定投弹间隔与导弹冷却（ms），即武器射速（场景配置使用）
+    public Ship(double x, double y, int worldWidth, double dropInterval, double missileInterval){
+        super(new EntityStore(1));
+        this.dropInterval = dropInterval;
+        this.missileInterval = missileInterval;
+        store.x[slot] = x; store.y[slot] = y; store.w[slot] = 100; store.h[slot] = 48;
         this.worldWidth = worldWidth;
         this.facing = 1;
     }
 
     // moveDir: -1 left, +1 right, 0 none
-    public void move(int moveDir){
+    public void move(int moveDir){ move(moveDir, 1); }
+
+    // 移动 steps 个基准步（长步长时按 Entity.steps(dt)）
+    public void move(int moveDir, double steps){
         if (moveDir != 0) {
             // 更新朝向但不要随时间自动切换
             this.facing = moveDir < 0 ? -1 : 1;
         }
-        this.x += moveDir * speed;
-        if (this.x < 0) this.x = 0;
-        if (this.x > worldWidth - w) this.x = worldWidth - w;
+        double x = store.x[slot] + moveDir * speed * steps, w = store.w[slot];
+        if (x < 0) x = 0;
+        if (x > worldWidth - w) x = worldWidth - w;
+        store.x[slot] = x;
     }
 
     @Override
     public void update(long dt){
         if (cooldown > 0) cooldown = Math.max(0, cooldown - dt);
+        if (missileCooldown > 0) missileCooldown = Math.max(0, missileCooldown - dt);
     }
 
-    public Bomb dropBomb(){
+    // 在 bombs 存储中创建炸弹；冷却中返回 null
+    public Bomb dropBomb(EntityStore bombs){
         if (cooldown > 0) return null;
         cooldown = dropInterval;
-        double bx = this.x + this.w/2 - 12;
-        double by = this.y + this.h;
-        return new Bomb(bx, by);
+        double bx = store.x[slot] + store.w[slot]/2 - 12;
+        double by = store.y[slot] + store.h[slot];
+        return Bomb.obtain(bombs, bx, by);
     }
 
-    public double getX(){ return x; }
+    // 导弹冷却（按模拟时间计）：就绪时开始新一轮冷却并返回 true
+    public boolean tryLaunchMissile(){
+        if (missileCooldown > 0) return false;
+        missileCooldown = missileInterval;
+        return true;
+    }
+
+    // 导弹剩余冷却时间（ms）
+    public long getMissileCooldown(){ return (long)Math.ceil(missileCooldown); }
+
+    public double getX(){ return store.x[slot]; }
+
+    // 记录本 tick 开始时的位置，及读取它（渲染插值用）
+    public void savePrevious(){ store.savePrevious(); }
+    public double getPrevX(){ return store.prevX(slot); }
+    public double getPrevY(){ return store.prevY(slot); }
 
     // 新增：返回当前朝向（用于渲染选择图片）
     public int getFacing(){ return facing; }
+    // 检查点：位置（含上一位置）、朝向与两种武器冷却，共 CHECKPOINT_BYTES 字节
+    public static final int CHECKPOINT_BYTES = 4 * 8 + 4 + 2 * 8;
+
+    public void writeTo(ByteBuffer out){
+        out.putDouble(store.x[slot]).putDouble(store.y[slot]).putDouble(store.px[slot]).putDouble(store.py[slot]);
+        out.putInt(facing).putDouble(cooldown).putDouble(missileCooldown);
+    }
+
+    public void readFrom(ByteBuffer in){
+        store.x[slot] = in.getDouble(); store.y[slot] = in.getDouble();
+        store.px[slot] = in.getDouble(); store.py[slot] = in.getDouble();
+        facing = in.getInt();
+        cooldown = in.getDouble();
+        missileCooldown = in.getDouble();
+    }
+
+    // 军舰的模拟状态（位置、朝向、两种武器冷却）混入哈希，见 EntityStore.hash
+    public long hash(long acc){
+        acc = store.hash(acc);
+        acc = EntityStore.mix(acc, facing);
+        acc = EntityStore.mix(acc, Double.doubleToLongBits(cooldown));
+        return EntityStore.mix(acc, Double.doubleToLongBits(missileCooldown));
+    }
 }
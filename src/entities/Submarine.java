@@ -1,57 +1,175 @@
 package entities;
 
-import entities.Entity.Rect;
+import java.nio.ByteBuffer;
+import java.util.Random;
 
 public class Submarine extends Entity {
     public enum Type { RED, BLACK }
+    private static final Type[] TYPES = Type.values();
+    // 列映射：vx = 水平速度，t = 上下浮动相位，hp = 血量，score = 分值，tag = 类型序号
 
-    private double vx;
-    private double bobPhase;
-    private int hp;
-    private final Type type;
-    private final int scoreValue;
+    /**
+     * 生成参数：类型比例、双倍血量比例与速度分布（场景可覆盖，默认值即原有硬编码的规则）。
+     * 速度 = [speedMin, speedMin + speedSpread) 内均匀分布的基础速度 × 类型倍率。
+     */
+    public static final class Profile {
+        public static final Profile DEFAULT = new Profile(0.4, 0.15, 1.2, 1.6, 1.4, 0.75);
+        public final double redRatio, toughRatio;
+        public final double speedMin, speedSpread;
+        public final double redSpeedMult, blackSpeedMult;
 
-    // side: -1 表示从左向右，+1 表示从右向左
-    public Submarine(int sideSign, int worldW, int worldH, int seaTop){
-        this.w = 80; this.h = 40;
-        this.hp = Math.random() < 0.15 ? 2 : 1;
-        // 随机类型分配：约 40% 概率为 RED（快速高分），其余为 BLACK（慢低分）
-        if (Math.random() < 0.4) {
-            this.type = Type.RED;
-            this.scoreValue = 20;
-        } else {
-            this.type = Type.BLACK;
-            this.scoreValue = 10;
+        public Profile(double redRatio, double toughRatio, double speedMin, double speedSpread,
+                       double redSpeedMult, double blackSpeedMult){
+            this.redRatio = redRatio; this.toughRatio = toughRatio;
+            this.speedMin = speedMin; this.speedSpread = speedSpread;
+            this.redSpeedMult = redSpeedMult; this.blackSpeedMult = blackSpeedMult;
         }
+    }
+
+    // side: -1 表示从左向右，+1 表示从右向左
+    // rand: 由引擎传入的随机源（可设种子以复现对局）
+    public static Submarine spawn(EntityStore store, int sideSign, int worldW, int worldH, int seaTop, Random rand){
+        return spawn(store, sideSign, worldW, worldH, seaTop, rand, Profile.DEFAULT);
+    }
+
+    // 按生成参数在屏幕一侧生成（随机数的使用顺序与默认规则一致，保证同种子可复现）
+    public static Submarine spawn(EntityStore store, int sideSign, int worldW, int worldH, int seaTop, Random rand, Profile p){
+        double w = 80;
+        double x = sideSign < 0 ? -w : worldW + w;
+        return spawnAt(store, sideSign, x, worldH, seaTop, rand, p);
+    }
+
+    // 在海域内随机水平位置生成（场景初始种群使用），方向随机
+    public static Submarine spawnInside(EntityStore store, int worldW, int worldH, int seaTop, Random rand, Profile p){
+        int sideSign = rand.nextBoolean() ? -1 : 1;
+        double x = rand.nextDouble() * (worldW - 80);
+        return spawnAt(store, sideSign, x, worldH, seaTop, rand, p);
+    }
+
+    private static Submarine spawnAt(EntityStore store, int sideSign, double x, int worldH, int seaTop, Random rand, Profile p){
+        int hp = rand.nextDouble() < p.toughRatio ? 2 : 1;
+        // 随机类型分配：默认约 40% 概率为 RED（快速高分），其余为 BLACK（慢低分）
+        Type type = rand.nextDouble() < p.redRatio ? Type.RED : Type.BLACK;
         // 基础速度
-        double base = 1.2 + Math.random() * 1.6; // 1.2 ~ 2.8
+        double base = p.speedMin + rand.nextDouble() * p.speedSpread; // 默认 1.2 ~ 2.8
         // 根据类型调节速度：RED 更快，BLACK 更慢；保留方向 sign
-        double mult = (this.type == Type.RED) ? 1.4 : 0.75;
-        this.vx = base * mult * (sideSign < 0 ? 1 : -1);
+        double mult = (type == Type.RED) ? p.redSpeedMult : p.blackSpeedMult;
+        double vx = base * mult * (sideSign < 0 ? 1 : -1);
+
+        double y = seaTop + 20 + rand.nextDouble()*(worldH - seaTop - 80);
+        double bobPhase = rand.nextDouble()*Math.PI*2;
+        return obtain(store, type, x, y, vx, hp, bobPhase);
+    }
 
-        this.x = sideSign < 0 ? -this.w : worldW + this.w;
-        this.y = seaTop + 20 + Math.random()*(worldH - seaTop - 80);
-        this.bobPhase = Math.random()*Math.PI*2;
-        this.active = true;
+    // 指定参数直接创建（基准测试/场景脚本使用），优先复用对象池中的视图
+    public static Submarine obtain(EntityStore store, Type type, double x, double y, double vx, int hp, double bobPhase){
+        Submarine s = (Submarine) store.reuse();
+        if (s == null) s = new Submarine(store);
+        s.init(type, x, y, vx, hp, bobPhase);
+        return s;
     }
 
+    private Submarine(EntityStore store){ super(store); }
+
+    // 从检查点恢复整个潜艇存储（见 EntityStore.readFrom）
+    public static void readStore(EntityStore store, ByteBuffer in){
+        store.readFrom(in, () -> { Entity v = store.reuse(); return v != null ? v : new Submarine(store); });
+    }
+
+    private void init(Type type, double x, double y, double vx, int hp, double bobPhase){
+        store.w[slot] = 80; store.h[slot] = 40;
+        store.tag[slot] = type.ordinal();
+        store.score[slot] = (type == Type.RED) ? 20 : 10;
+        store.place(slot, x, y);
+        store.vx[slot] = vx; store.hp[slot] = hp;
+        store.t[slot] = bobPhase;
+    }
+
+    // 水平存活范围为世界两侧各外扩 MARGIN；MIN_X/MAX_X 是默认 800 宽世界的范围（不带边界参数的便捷方法使用）
+    public static final double MARGIN = 200;
+    public static final double MIN_X = -MARGIN, MAX_X = 800 + MARGIN;
+    private static final double BOB_STEP = 0.03, BOB_AMP = 0.5; // 每 tick 的浮动相位增量与幅度
+
     @Override
     public void update(long dt){
-        // 使用 dt 粒度会更稳定，但这里保持原有简单推进
-        this.x += vx;
-        // bobbing
-        bobPhase += 0.03;
-        this.y += Math.sin(bobPhase) * 0.5;
+        double k = Entity.steps(dt);
+        if (isActive() && step(store, slot, k, bobSum(k), MIN_X, MAX_X)) setActive(false);
+    }
+
+    // 批量更新：顺序遍历列数组，无分配
+    public static void updateAll(EntityStore s, long dt){ updateAll(s, dt, MIN_X, MAX_X); }
+
+    // 批量更新，x 超出 [minX, maxX] 的潜艇失效（按世界宽度设置）
+    public static void updateAll(EntityStore s, long dt, double minX, double maxX){
+        double k = Entity.steps(dt), bob = bobSum(k);
+        for (int i = 0, n = s.size; i < n; i++){
+            if (s.isAlive(i) && step(s, i, k, bob, minX, maxX)) s.setAlive(i, false);
+        }
+    }
+
+    // 并行更新 [from, to) 范围（范围按 EntityStore.ALIGN 对齐）；不更新存活计数，全部范围结束后调用 recountLive
+    public static void updateRange(EntityStore s, int from, int to, long dt, double minX, double maxX){
+        double k = Entity.steps(dt), bob = bobSum(k);
+        for (int i = from; i < to; i++){
+            if (s.isAlive(i) && step(s, i, k, bob, minX, maxX)) s.clearAliveBit(i);
+        }
+    }
+
+    /**
+     * 推进一个槽位 k 个基准步，返回是否离开存活范围（由调用方标记失效）。k = 1 时逐步推进；
+     * 否则按闭式一次算出：水平匀速，浮动位移为 sin(t + jδ)（j = 1..k）之和 = sin(t + (k+1)δ/2)·bobSum(k)，
+     * 与逐步推进近似（浮点舍入不同），k 可以不是整数。
+     */
+    private static boolean step(EntityStore s, int i, double k, double bob, double minX, double maxX){
+        if (k == 1){
+            s.x[i] += s.vx[i];
+            // bobbing
+            s.t[i] += BOB_STEP;
+            s.y[i] += Math.sin(s.t[i]) * BOB_AMP;
+        } else {
+            s.x[i] += s.vx[i] * k;
+            s.y[i] += Math.sin(s.t[i] + (k + 1) * BOB_STEP / 2) * bob;
+            s.t[i] += k * BOB_STEP;
+        }
         // offscreen kill
-        if (this.x < -200 || this.x > 2000) this.active = false;
+        return s.x[i] < minX || s.x[i] > maxX;
     }
 
-    public void damage(int n){ hp -= n; if (hp <= 0) this.active = false; }
+    // k 步浮动位移之和的幅度：BOB_AMP·sin(kδ/2)/sin(δ/2)
+    private static double bobSum(double k){ return BOB_AMP * Math.sin(k * BOB_STEP / 2) / Math.sin(BOB_STEP / 2); }
 
-    @Override
-    public Rect getBox(){ return new Rect((int)x, (int)y, (int)w, (int)h); }
+    /**
+     * 休眠推进：一次补上 steps 个基准步（闭式，见 step），越出 [minX, maxX] 的潜艇失效。
+     * 上一位置随后取补推后的位置：休眠存储不参与每 tick 的 savePrevious，唤醒的潜艇不应带着整段休眠期的位移
+     * （扫掠检测的查询范围、碰撞路径与渲染插值都从上一位置开始）。
+     */
+    public static void advanceDormant(EntityStore s, double steps, double minX, double maxX){
+        if (steps > 0){
+            double bob = bobSum(steps);
+            for (int i = 0, n = s.size; i < n; i++){
+                if (s.isAlive(i) && step(s, i, steps, bob, minX, maxX)) s.setAlive(i, false);
+            }
+        }
+        s.savePrevious();
+    }
+
+    // 把 from 的槽位 i 迁移到 to（活跃/休眠分区之间），保留 id 与全部状态；原槽位由下一次 compact 移除
+    public static void moveTo(EntityStore from, int i, EntityStore to){
+        from.moveTo(i, to, () -> { Entity v = to.reuse(); return v != null ? v : new Submarine(to); });
+    }
+
+    public void damage(int n){ damage(store, slot, n); }
+
+    // 按槽位扣血，返回扣血后是否死亡
+    public static boolean damage(EntityStore s, int i, int n){
+        s.hp[i] -= n;
+        if (s.hp[i] <= 0) s.setAlive(i, false);
+        return !s.isAlive(i);
+    }
 
     // 新增访问器
-    public Type getType(){ return type; }
-    public int getScoreValue(){ return scoreValue; }
+    public Type getType(){ return TYPES[store.tag[slot]]; }
+    public int getScoreValue(){ return store.score[slot]; }
+    public static Type typeOf(EntityStore s, int i){ return TYPES[s.tag[i]]; }
+    public static int scoreOf(EntityStore s, int i){ return s.score[i]; }
 }
@@ -0,0 +1,158 @@
+package net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 帧差分编码（服务端编码、客户端解码共用）。消息以 4 字节长度前缀分帧，负载首字节为类型：
+ *
+ *   FRAME（服务端 → 客户端）：
+ *     varint tick | varint (baseTick + 1)（0 表示相对空帧，即完整状态）| zigzag 分数变化
+ *     varint 消失数 { varint 键差 }
+ *     varint 出现数 { varint 键差, zigzag qx, zigzag qy, zigzag attr }
+ *     varint 变化数 { varint (键差 << 1 | attr 是否变化), zigzag dqx, zigzag dqy [, zigzag attr] }
+ *   ACK（客户端 → 服务端）：varint 已解码的 tick
+ *
+ * 三个列表的键都升序，键差相对同一列表的上一个键（首个相对 0）。位置不变且属性不变的实体不出现。
+ * 一艘移动中的潜艇每 tick 通常只占 3~4 字节。
+ */
+final class DeltaCodec {
+    static final byte FRAME = 1, ACK = 2;
+
+    private DeltaCodec(){}
+
+    // 编码 cur 相对 base 的差分所需的最大字节数（含长度前缀）
+    static int maxSize(WorldFrame base, WorldFrame cur){
+        return 4 + 1 + 10 + 10 + 5 + 3 * 5 + 20 * (base.size() + cur.size());
+    }
+
+    // 把带长度前缀的 FRAME 消息写入 out（空间由调用方按 maxSize 保证）
+    static void encode(WorldFrame base, WorldFrame cur, ByteBuffer out){
+        int start = out.position();
+        out.putInt(0).put(FRAME);
+        putVarint(out, cur.tick);
+        putVarint(out, base.tick + 1);
+        putVarint(out, zigzag(cur.score - base.score));
+        int[] bk = base.keys, ck = cur.keys;
+        int nb = bk.length, nc = ck.length;
+
+        // 消失：base 有、cur 没有
+        int countAt = reserve(out), count = 0, last = 0;
+        for (int i = 0, j = 0; i < nb; i++){
+            while (j < nc && ck[j] < bk[i]) j++;
+            if (j < nc && ck[j] == bk[i]) continue;
+            putVarint(out, bk[i] - last); last = bk[i]; count++;
+        }
+        patch(out, countAt, count);
+
+        // 出现：cur 有、base 没有
+        countAt = reserve(out); count = 0; last = 0;
+        for (int j = 0, i = 0; j < nc; j++){
+            while (i < nb && bk[i] < ck[j]) i++;
+            if (i < nb && bk[i] == ck[j]) continue;
+            putVarint(out, ck[j] - last); last = ck[j]; count++;
+            putVarint(out, zigzag(cur.qx[j])); putVarint(out, zigzag(cur.qy[j])); putVarint(out, zigzag(cur.attr[j]));
+        }
+        patch(out, countAt, count);
+
+        // 变化：两边都有且位置或属性不同
+        countAt = reserve(out); count = 0; last = 0;
+        for (int j = 0, i = 0; j < nc; j++){
+            while (i < nb && bk[i] < ck[j]) i++;
+            if (i >= nb || bk[i] != ck[j]) continue;
+            int dx = cur.qx[j] - base.qx[i], dy = cur.qy[j] - base.qy[i];
+            boolean attrChanged = cur.attr[j] != base.attr[i];
+            if (dx == 0 && dy == 0 && !attrChanged) continue;
+            putVarint(out, (long)(ck[j] - last) << 1 | (attrChanged ? 1 : 0)); last = ck[j]; count++;
+            putVarint(out, zigzag(dx)); putVarint(out, zigzag(dy));
+            if (attrChanged) putVarint(out, zigzag(cur.attr[j]));
+        }
+        patch(out, countAt, count);
+        out.putInt(start, out.position() - start - 4);
+    }
+
+    // 解码 FRAME 负载（类型字节之后）；base 必须是负载中 baseTick 对应的帧
+    static WorldFrame decode(WorldFrame base, long tick, ByteBuffer in){
+        int score = base.score + unzigzag(getVarint(in));
+        int[] bk = base.keys;
+        int nb = bk.length;
+
+        int nGone = (int) getVarint(in);
+        int[] gone = new int[nGone];
+        for (int k = 0, last = 0; k < nGone; k++){ last += (int) getVarint(in); gone[k] = last; }
+
+        int nNew = (int) getVarint(in);
+        int[] nk = new int[nNew], nx = new int[nNew], ny = new int[nNew], na = new int[nNew];
+        for (int k = 0, last = 0; k < nNew; k++){
+            last += (int) getVarint(in); nk[k] = last;
+            nx[k] = unzigzag(getVarint(in)); ny[k] = unzigzag(getVarint(in)); na[k] = unzigzag(getVarint(in));
+        }
+
+        // 合并：base 去掉消失的，再按键序并入出现的
+        int n = nb - nGone + nNew;
+        int[] keys = new int[n], qx = new int[n], qy = new int[n], attr = new int[n];
+        int m = 0, g = 0, s = 0;
+        for (int i = 0; i <= nb; i++){
+            int key = i < nb ? bk[i] : Integer.MAX_VALUE;
+            while (s < nNew && nk[s] < key){
+                keys[m] = nk[s]; qx[m] = nx[s]; qy[m] = ny[s]; attr[m] = na[s]; m++; s++;
+            }
+            if (i == nb) break;
+            if (g < nGone && gone[g] == key){ g++; continue; }
+            keys[m] = key; qx[m] = base.qx[i]; qy[m] = base.qy[i]; attr[m] = base.attr[i]; m++;
+        }
+        if (m != n || g != nGone) throw new IllegalArgumentException("delta does not match baseline " + base.tick);
+
+        int nMoved = (int) getVarint(in);
+        for (int k = 0, last = 0, at = 0; k < nMoved; k++){
+            long v = getVarint(in);
+            last += (int)(v >>> 1);
+            while (at < n && keys[at] < last) at++;
+            if (at == n || keys[at] != last) throw new IllegalArgumentException("moved entity " + last + " not in frame");
+            qx[at] += unzigzag(getVarint(in));
+            qy[at] += unzigzag(getVarint(in));
+            if ((v & 1) != 0) attr[at] = unzigzag(getVarint(in));
+        }
+        return new WorldFrame(tick, score, keys, qx, qy, attr);
+    }
+
+    // ACK 消息（带长度前缀）
+    static void encodeAck(long tick, ByteBuffer out){
+        int start = out.position();
+        out.putInt(0).put(ACK);
+        putVarint(out, tick);
+        out.putInt(start, out.position() - start - 4);
+    }
+
+    // 计数在写完列表后才知道：先占 5 字节（定长 varint），再回填
+    private static int reserve(ByteBuffer out){
+        int at = out.position();
+        out.position(at + 5);
+        return at;
+    }
+
+    private static void patch(ByteBuffer out, int at, int v){
+        for (int k = 0; k < 4; k++){ out.put(at + k, (byte)((v & 0x7F) | 0x80)); v >>>= 7; }
+        out.put(at + 4, (byte) v);
+    }
+
+    static void putVarint(ByteBuffer out, long v){
+        while ((v & ~0x7FL) != 0){
+            out.put((byte)((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    static long getVarint(ByteBuffer in){
+        long v = 0;
+        for (int shift = 0; ; shift += 7){
+            byte x = in.get();
+            v |= (long)(x & 0x7F) << shift;
+            if (x >= 0) return v;
+            if (shift > 56) throw new IllegalArgumentException("varint too long");
+        }
+    }
+
+    private static long zigzag(int v){ return (v << 1 ^ v >> 31) & 0xFFFFFFFFL; }
+    private static int unzigzag(long v){ return (int)(v >>> 1) ^ -(int)(v & 1); }
+}
@@ -0,0 +1,114 @@
+package net;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * 观战客户端（阻塞 SocketChannel）：接收 SpectatorServer 的差分帧，相对本地保存的基线解码出完整的 WorldFrame，
+ * 并回发 ACK 使服务端以它为新的基线。保留最近 HISTORY 个已解码帧（多于服务端的未确认窗口），
+ * 以便服务端使用稍旧的基线（ACK 在途时）。
+ * 非线程安全；通常由一个线程循环调用 poll。
+ * 用法：java net.SpectatorClient [host] [port] [frames]，打印收到的帧数、字节数与最后一帧的实体数。
+ */
+public final class SpectatorClient implements AutoCloseable {
+    private static final int HISTORY = SpectatorServer.WINDOW * 2;
+
+    private final SocketChannel channel;
+    private ByteBuffer in = ByteBuffer.allocate(1 << 16);
+    private final ByteBuffer ack = ByteBuffer.allocate(16);
+    private final WorldFrame[] history = new WorldFrame[HISTORY];
+    private int historyAt = 0;
+    private WorldFrame latest = WorldFrame.EMPTY;
+    private long bytesReceived = 0, frames = 0, fullFrames = 0;
+
+    public SpectatorClient(String host, int port) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+        in.flip();
+    }
+
+    // 阻塞读取并解码下一帧，回发 ACK，返回解码后的帧
+    public WorldFrame poll() throws IOException {
+        fill(4);
+        int len = in.getInt(in.position());
+        if (len <= 0) throw new IOException("bad message length " + len);
+        fill(4 + len);
+        in.position(in.position() + 4);
+        int end = in.position() + len;
+        if (in.get() != DeltaCodec.FRAME) throw new IOException("unexpected message type");
+        long tick = DeltaCodec.getVarint(in);
+        long baseTick = DeltaCodec.getVarint(in) - 1;
+        WorldFrame base = baseTick < 0 ? WorldFrame.EMPTY : find(baseTick);
+        if (base == null) throw new IOException("baseline " + baseTick + " no longer kept");
+        WorldFrame f = DeltaCodec.decode(base, tick, in);
+        if (in.position() != end) throw new IOException("frame length mismatch");
+        bytesReceived += 4 + len;
+        frames++;
+        if (baseTick < 0) fullFrames++;
+        history[historyAt] = f;
+        historyAt = (historyAt + 1) % HISTORY;
+        latest = f;
+        ack.clear();
+        DeltaCodec.encodeAck(tick, ack);
+        ack.flip();
+        while (ack.hasRemaining()) channel.write(ack);
+        return f;
+    }
+
+    public WorldFrame latest(){ return latest; }
+    public long getBytesReceived(){ return bytesReceived; }
+    public long getFrames(){ return frames; }
+    public long getFullFrames(){ return fullFrames; }
+
+    private WorldFrame find(long tick){
+        for (WorldFrame f : history) if (f != null && f.tick == tick) return f;
+        return null;
+    }
+
+    // 保证缓冲区中至少有 n 个未读字节
+    private void fill(int n) throws IOException {
+        if (in.remaining() >= n) return;
+        if (in.capacity() < n){
+            ByteBuffer bigger = ByteBuffer.allocate(Integer.highestOneBit(n) << 1);
+            bigger.put(in);
+            in = bigger;
+        } else {
+            in.compact();
+        }
+        while (in.position() < n){
+            if (channel.read(in) < 0) throw new EOFException("server closed");
+        }
+        in.flip();
+    }
+
+    @Override
+    public void close() throws IOException { channel.close(); }
+
+    public static void main(String[] args) throws IOException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7777;
+        long limit = args.length > 2 ? Long.parseLong(args[2]) : Long.MAX_VALUE;
+        try (SpectatorClient c = new SpectatorClient(host, port)){
+            long nextReport = System.nanoTime() + 1_000_000_000L;
+            try {
+                while (c.getFrames() < limit){
+                    c.poll();
+                    if (System.nanoTime() >= nextReport){ report(c); nextReport += 1_000_000_000L; }
+                }
+            } catch (EOFException e){
+                System.out.println("server closed");
+            }
+            if (c.getFrames() > 0) report(c);
+        }
+    }
+
+    private static void report(SpectatorClient c){
+        WorldFrame f = c.latest();
+        System.out.printf("frames=%d full=%d bytes=%d avg=%.1fB/frame tick=%d score=%d entities=%d%n",
+                c.getFrames(), c.getFullFrames(), c.getBytesReceived(),
+                (double) c.getBytesReceived() / c.getFrames(), f.tick(), f.score(), f.size());
+    }
+}
@@ -0,0 +1,205 @@
+package net;
+
+import engine.GameEngine;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 观战服务器：单线程非阻塞 NIO（Selector），把引擎状态以差分形式推送给任意数量的远程观众。
+ *
+ * 模拟线程在 tick 之间调用 publish(engine) 采集一帧（WorldFrame）并唤醒网络线程；网络线程只发送最新一帧，
+ * 来不及发送的中间帧直接跳过。每个客户端以自己最后确认（ACK）的帧为基线：发送的是当前帧相对该基线的差分，
+ * 新连接的基线为空帧，即第一帧是完整状态。相同基线的客户端共享同一次编码结果。
+ * 流量控制：每个客户端最多 WINDOW 个未确认帧，且发送缓冲未排空时不发新帧；慢客户端只会少收帧，
+ * 基线始终是它确认过的帧，不会退化为反复发送完整状态，也不会积压内存或拖慢其他客户端。
+ * 协议见 DeltaCodec；SpectatorClient 为对应的客户端解码器。
+ */
+public final class SpectatorServer implements AutoCloseable {
+    static final int WINDOW = 16;                     // 每个客户端最多的未确认帧数（客户端保留的解码历史须更多）
+    private static final int MAX_INBOUND = 1 << 12;   // 客户端只发送 ACK，入站缓冲很小
+
+    private static final class Client {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(MAX_INBOUND);
+        ByteBuffer out = ByteBuffer.allocate(1 << 12);
+        WorldFrame base = WorldFrame.EMPTY;                   // 最后确认的帧
+        WorldFrame last, skipped;                             // 最后发送的帧 / 最后计为跳过的帧
+        final ArrayDeque<WorldFrame> inflight = new ArrayDeque<>(); // 已发送未确认，按 tick 升序
+        Client(SocketChannel channel){ this.channel = channel; out.flip(); }
+
+        // 确认 tick：它成为新的基线，更早的未确认帧不再需要
+        void ack(long tick){
+            while (!inflight.isEmpty() && inflight.peekFirst().tick <= tick){
+                WorldFrame f = inflight.pollFirst();
+                if (f.tick == tick) base = f;
+            }
+        }
+    }
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread thread;
+    private final List<Client> clients = new ArrayList<>();
+    private final Map<WorldFrame, ByteBuffer> encoded = new IdentityHashMap<>(); // 当前帧：基线 -> 编码结果
+    private volatile WorldFrame latest;
+    private volatile boolean open = true;
+    private WorldFrame encodedFor;
+    // 统计（网络线程写，其他线程读）
+    private volatile long framesSent, fullFramesSent, bytesSent, framesSkipped;
+
+    // port 为 0 时由系统分配（见 getPort）
+    public SpectatorServer(int port) throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        selector = Selector.open();
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this::loop, "spectator-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int getPort(){ return server.socket().getLocalPort(); }
+
+    // 在模拟线程上（tick 之间）采集并发布当前帧
+    public void publish(GameEngine engine){
+        latest = WorldFrame.capture(engine);
+        selector.wakeup();
+    }
+
+    public synchronized int getClientCount(){ return clients.size(); }
+    public long getFramesSent(){ return framesSent; }
+    public long getFullFramesSent(){ return fullFramesSent; }
+    public long getBytesSent(){ return bytesSent; }
+    public long getFramesSkipped(){ return framesSkipped; }
+
+    private void loop(){
+        try {
+            while (open){
+                selector.select(100);
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()){
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+                    try {
+                        if (key.isAcceptable()) accept();
+                        else {
+                            Client c = (Client) key.attachment();
+                            if (key.isReadable()) read(c);
+                            if (key.isValid() && key.isWritable()) flush(c, key);
+                        }
+                    } catch (IOException e){
+                        drop(key);
+                    }
+                }
+                WorldFrame f = latest;
+                if (f != null) broadcast(f);
+            }
+        } catch (IOException e){
+            if (open) System.err.println("spectator server stopped: " + e);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch = server.accept();
+        if (ch == null) return;
+        ch.configureBlocking(false);
+        ch.socket().setTcpNoDelay(true);
+        Client c = new Client(ch);
+        ch.register(selector, SelectionKey.OP_READ, c);
+        synchronized (this){ clients.add(c); }
+    }
+
+    // 读取 ACK：[int 长度][ACK][varint tick]
+    private void read(Client c) throws IOException {
+        if (c.channel.read(c.in) < 0) throw new IOException("closed");
+        c.in.flip();
+        while (c.in.remaining() >= 4){
+            int len = c.in.getInt(c.in.position());
+            if (len <= 0 || len > MAX_INBOUND - 4) throw new IOException("bad message length " + len);
+            if (c.in.remaining() < 4 + len) break;
+            c.in.position(c.in.position() + 4);
+            int end = c.in.position() + len;
+            if (c.in.get() == DeltaCodec.ACK) c.ack(DeltaCodec.getVarint(c.in));
+            c.in.position(end);
+        }
+        c.in.compact();
+    }
+
+    // 把 f 发给还没收到它、且窗口与发送缓冲允许的客户端（窗口因 ACK 空出后在下一轮补发最新帧）
+    private void broadcast(WorldFrame f){
+        if (encodedFor != f){ encoded.clear(); encodedFor = f; }
+        for (SelectionKey key : selector.keys()){
+            if (!(key.attachment() instanceof Client) || !key.isValid()) continue;
+            Client c = (Client) key.attachment();
+            if (c.last == f) continue;
+            if (c.out.hasRemaining() || c.inflight.size() >= WINDOW){
+                if (c.skipped != f){ c.skipped = f; framesSkipped++; }
+                continue;
+            }
+            WorldFrame base = c.base;
+            ByteBuffer msg = encoded.get(base);
+            if (msg == null){
+                msg = ByteBuffer.allocate(DeltaCodec.maxSize(base, f));
+                DeltaCodec.encode(base, f, msg);
+                msg.flip();
+                encoded.put(base, msg);
+            }
+            if (c.out.capacity() < msg.remaining()) c.out = ByteBuffer.allocate(Integer.highestOneBit(msg.remaining()) << 1);
+            c.out.clear();
+            c.out.put(msg.duplicate());
+            c.out.flip();
+            c.inflight.addLast(f);
+            c.last = f;
+            framesSent++;
+            if (base == WorldFrame.EMPTY) fullFramesSent++;
+            try {
+                flush(c, key);
+            } catch (IOException e){
+                drop(key);
+            }
+        }
+    }
+
+    // 尽量写出；写不完时关注 OP_WRITE，排空后取消
+    private void flush(Client c, SelectionKey key) throws IOException {
+        bytesSent += c.channel.write(c.out);
+        key.interestOps(c.out.hasRemaining() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void drop(SelectionKey key){
+        key.cancel();
+        Client c = (Client) key.attachment();
+        synchronized (this){ clients.remove(c); }
+        try { c.channel.close(); } catch (IOException ignored){ }
+    }
+
+    @Override
+    public void close() throws IOException {
+        open = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()){
+            if (key.attachment() instanceof Client) drop(key);
+        }
+        selector.close();
+        server.close();
+    }
+}
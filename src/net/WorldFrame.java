@@ -0,0 +1,83 @@
+package net;
+
+import engine.GameEngine;
+import entities.EntityStore;
+
+import java.util.Arrays;
+
+/**
+ * 观战用的世界帧：某个 tick 的全部存活实体，按键（种类 + 实体 id）升序排列，坐标量化为 1/QUANT 像素。
+ * 不可变：服务端每次发布新建一帧，保存在历史中作为各客户端的差分基线；客户端解码得到同样的结构。
+ *
+ * 键 = kind << 28 | (id & 0x0FFFFFFF)。attr 为种类相关的离散属性：军舰朝向、潜艇类型、爆炸半径，其余为 0。
+ */
+public final class WorldFrame {
+    public static final int SHIP = 0, BOMB = 1, SUB = 2, EXPLOSION = 3, MISSILE = 4;
+    public static final int QUANT = 2; // 坐标量化：半像素
+    private static final int ID_MASK = 0x0FFFFFFF;
+
+    // 空帧：没有共同基线时按它做差分（即完整状态）
+    static final WorldFrame EMPTY = new WorldFrame(-1, 0, new int[0], new int[0], new int[0], new int[0]);
+
+    final long tick;
+    final int score;
+    final int[] keys, qx, qy, attr;
+
+    WorldFrame(long tick, int score, int[] keys, int[] qx, int[] qy, int[] attr){
+        this.tick = tick; this.score = score;
+        this.keys = keys; this.qx = qx; this.qy = qy; this.attr = attr;
+    }
+
+    // 在模拟线程上（tick 之间）采集引擎当前状态
+    public static WorldFrame capture(GameEngine e){
+        // 休眠潜艇（大地图活跃区之外）同样是 SUB，位置只在批量补推时变化
+        EntityStore[] stores = { e.getBombStore(), e.getSubStore(), e.getDormantStore(), e.getExplosionStore(), e.getMissileStore() };
+        int[] kinds = { BOMB, SUB, SUB, EXPLOSION, MISSILE };
+        int n = 1;
+        for (EntityStore s : stores) n += s.liveCount();
+        long[] order = new long[n];
+        int[] k0 = new int[n], x0 = new int[n], y0 = new int[n], a0 = new int[n];
+        k0[0] = 0;
+        x0[0] = quantize(e.getShip().getX());
+        y0[0] = quantize(e.getShip().boxY());
+        a0[0] = e.getShip().getFacing();
+        int m = 1;
+        for (int s = 0; s < stores.length; s++){
+            EntityStore st = stores[s];
+            int kind = kinds[s];
+            for (int i = 0, size = st.size(); i < size; i++){
+                if (!st.isAlive(i)) continue;
+                k0[m] = kind << 28 | (st.id(i) & ID_MASK);
+                x0[m] = quantize(st.x(i));
+                y0[m] = quantize(st.y(i));
+                a0[m] = kind == SUB || kind == EXPLOSION ? st.tag(i) : 0;
+                m++;
+            }
+        }
+        for (int i = 0; i < m; i++) order[i] = (long) k0[i] << 32 | i;
+        Arrays.sort(order, 0, m);
+        int[] keys = new int[m], qx = new int[m], qy = new int[m], attr = new int[m];
+        for (int i = 0; i < m; i++){
+            int j = (int) order[i];
+            keys[i] = k0[j]; qx[i] = x0[j]; qy[i] = y0[j]; attr[i] = a0[j];
+        }
+        return new WorldFrame(e.getTickCount(), e.getScore(), keys, qx, qy, attr);
+    }
+
+    static int quantize(double v){ return (int) Math.round(v * QUANT); }
+
+    public long tick(){ return tick; }
+    public int score(){ return score; }
+    public int size(){ return keys.length; }
+    public int kind(int i){ return keys[i] >>> 28; }
+    public int id(int i){ return keys[i] & ID_MASK; }
+    public double x(int i){ return (double) qx[i] / QUANT; }
+    public double y(int i){ return (double) qy[i] / QUANT; }
+    public int attr(int i){ return attr[i]; }
+
+    // 内容是否完全相同（不比较 tick）
+    public boolean sameState(WorldFrame o){
+        return score == o.score && Arrays.equals(keys, o.keys) && Arrays.equals(qx, o.qx)
+                && Arrays.equals(qy, o.qy) && Arrays.equals(attr, o.attr);
+    }
+}
@@ -0,0 +1,113 @@
+package sim;
+
+import engine.GameEngine;
+import engine.InputQueue;
+import engine.InputReplay;
+import engine.Scenario;
+import entities.EntityStore;
+import entities.Ship;
+import entities.Submarine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 无头一致性自检：同样的玩家指令无论来自 tick 之前的调用、输入回调（preTickHook）还是 InputQueue，
+ * 模拟结果都应相同。任一检查失败时以状态码 1 退出。
+ * 用法：java sim.ConsistencyCheck
+ * 覆盖：
+ *  - missile.* : 长步长（400ms）的 tick 内发射的导弹在第一个 tick 就穿过正下方的潜艇，扫掠检测应判定命中
+ *  - replay.*  : 自动驾驶在 tick 之前或输入回调中发出指令并录制，重放（InputReplay）后得分与状态哈希一致
+ *  - dormant.* : 大地图（scenarios/big-map.properties）上军舰一直右行，活跃潜艇每 tick 的位移（相对上一位置）
+ *                不超过几个基准步，即唤醒的潜艇不带着休眠期间的位移
+ */
+public final class ConsistencyCheck {
+    private static final long SEED = 1L;
+
+    private ConsistencyCheck(){}
+
+    public static void main(String[] args) throws IOException {
+        int failures = 0;
+        failures += check("missile.before", missileThroughSub(0));
+        failures += check("missile.hook", missileThroughSub(1));
+        failures += check("missile.queue", missileThroughSub(2));
+        for (long dt : new long[]{ 16, 64, 160 }){
+            failures += check("replay.before." + dt, replayRoundTrip(false, dt));
+            failures += check("replay.hook." + dt, replayRoundTrip(true, dt));
+        }
+        for (long dt : new long[]{ 16, 64 }) failures += check("dormant." + dt, wakeDisplacement(dt));
+        if (failures > 0){
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("all checks passed");
+    }
+
+    private static int check(String name, String failure){
+        System.out.printf("%-16s %s%n", name, failure == null ? "OK" : "FAIL " + failure);
+        return failure == null ? 0 : 1;
+    }
+
+    /**
+     * 军舰正下方 40px 处放一艘不动的潜艇，dt=400 的一个 tick 内导弹飞行 125px，tick 末尾已越过潜艇。
+     * source：0 = tick 之前调用，1 = 输入回调中调用，2 = 经 InputQueue 在 tick 开始时执行。
+     * 返回失败原因，通过时返回 null。
+     */
+    private static String missileThroughSub(int source){
+        GameEngine e = new GameEngine(Scenario.builder().world(800, 600).build(), SEED);
+        e.startManual();
+        EntityStore subs = e.getSubStore();
+        for (int i = 0; i < subs.size(); i++) subs.view(i).setActive(false);
+        Ship ship = e.getShip();
+        Submarine.obtain(subs, Submarine.Type.RED, ship.centerX() - 40, ship.centerY() + 45, 0, 1, 0);
+        e.rebuildSubIndex();
+        if (source == 0) e.playerLaunchMissile();
+        else if (source == 1) e.setPreTickHook(dt -> e.playerLaunchMissile());
+        else e.getInputQueue().offer(InputQueue.LAUNCH_MISSILE, System.nanoTime());
+        int before = e.getScore();
+        e.tick(400);
+        e.stop();
+        int gained = e.getScore() - before;
+        return gained == 20 ? null : "score +" + gained + ", expected +20";
+    }
+
+    // 默认场景下自动驾驶 2000 个 tick（inTick 为 true 时在输入回调中发出指令）并录制，重放后逐位比较
+    private static String replayRoundTrip(boolean inTick, long dt) throws IOException {
+        Path file = Files.createTempFile("navalwar-check", ".rec");
+        try {
+            GameEngine e = new GameEngine(Scenario.DEFAULT, SEED);
+            if (inTick) e.setPreTickHook(t -> HeadlessRunner.autopilot(e));
+            e.startRecording(file);
+            e.startManual();
+            for (int t = 0; t < 2000; t++){
+                if (!inTick) HeadlessRunner.autopilot(e);
+                e.tick(dt);
+            }
+            e.stopRecording();
+            e.stop();
+            InputReplay replay = InputReplay.load(file);
+            GameEngine r = replay.run(null);
+            if (replay.verify(r)) return null;
+            return String.format("score %d/%d hash %016x/%016x", r.getScore(), replay.score, r.stateHash(), replay.stateHash);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    // 大地图上 3000 个 tick 内活跃潜艇单 tick 的最大水平位移应不超过 dt 对应的基准步数 × 潜艇最大速度（留出余量）
+    private static String wakeDisplacement(long dt) throws IOException {
+        GameEngine e = new GameEngine(Scenario.load(Paths.get("scenarios/big-map.properties")), SEED);
+        e.setPreTickHook(t -> e.playerMoveRight());
+        e.startManual();
+        double max = 0, limit = 8 * Math.max(1, dt / 16.0);
+        for (int t = 0; t < 3000; t++){
+            e.tick(dt);
+            EntityStore s = e.getSubStore();
+            for (int i = 0, n = s.size(); i < n; i++) if (s.isAlive(i)) max = Math.max(max, Math.abs(s.x(i) - s.prevX(i)));
+        }
+        e.stop();
+        return max <= limit ? null : String.format("max |x - prevX| = %.1f, limit %.1f", max, limit);
+    }
+}
@@ -0,0 +1,175 @@
+package sim;
+
+import engine.Checkpoint;
+import engine.GameEngine;
+import engine.Scenario;
+import engine.TickMetrics;
+import net.SpectatorServer;
+import entities.EntityStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 无头模拟入口：不依赖 java.desktop，按固定步长尽可能快地推进 GameEngine。
+ * 用法：java sim.HeadlessRunner [--scenario file] [--record file] [--restore file] [--checkpoint file] [seed] [ticks] [dt] [games]
+ *  - --scenario : 场景文件（见 engine.Scenario.load），默认 Scenario.DEFAULT
+ *  - --record : 把每局的输入录制到文件（多局时第 i 局写入 file.i），可用 sim.ReplayRunner 重放校验
+ *  - --restore : 从检查点（engine.Checkpoint）继续，种子与场景取自检查点；多局时每局都从同一存档分叉
+ *  - --checkpoint : 每局结束时（以及每 -Dnavalwar.checkpoint.every 个 tick）把状态保存到该文件
+ *  - seed  : 随机种子（多局时第 i 局使用 seed + i）
+ *  - ticks : 每局推进的 tick 数
+ *  - dt    : 每个 tick 的步长（ms），默认 16
+ *  - games : 连续模拟的局数，默认 1
+ * 输出 ticks/s、entities/s 与每局最终得分。
+ * -Dnavalwar.metrics=true 时启用分阶段耗时统计，每局结束打印最后一个区间各阶段的 p50/p99/max。
+ * -Dnavalwar.parallel.threads=N（N > 0）时各局共享一个 N 线程的 ForkJoinPool，实体槽位数达到
+ * -Dnavalwar.parallel.threshold（默认 10000）的 tick 并行执行更新与碰撞候选扫描；得分与串行相同。
+ * -Dnavalwar.spectate.port=P 时在端口 P 上启动观战服务器（net.SpectatorServer），每个 tick 后发布一帧。
+ */
+public class HeadlessRunner {
+    private static final int PARALLEL_THREADS = Integer.getInteger("navalwar.parallel.threads", 0);
+    private static final int PARALLEL_THRESHOLD = Integer.getInteger("navalwar.parallel.threshold", 10_000);
+    private static final ForkJoinPool POOL = PARALLEL_THREADS > 0 ? new ForkJoinPool(PARALLEL_THREADS) : null;
+    private static final long CHECKPOINT_EVERY = Long.getLong("navalwar.checkpoint.every", 0L);
+    private static SpectatorServer spectators;
+
+    public static void main(String[] args) throws IOException {
+        Scenario scenario = Scenario.DEFAULT;
+        List<String> rest = new ArrayList<>(Arrays.asList(args));
+        String file = option(rest, "--scenario");
+        if (file != null){
+            scenario = Scenario.load(Paths.get(file));
+            System.out.println("scenario " + scenario);
+        }
+        String record = option(rest, "--record");
+        String restore = option(rest, "--restore");
+        String checkpoint = option(rest, "--checkpoint");
+        args = rest.toArray(new String[0]);
+        Integer port = Integer.getInteger("navalwar.spectate.port");
+        if (port != null){
+            spectators = new SpectatorServer(port);
+            System.out.println("spectator server on port " + spectators.getPort());
+        }
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 42L;
+        long ticks = args.length > 1 ? Long.parseLong(args[1]) : 100_000L;
+        long dt = args.length > 2 ? Long.parseLong(args[2]) : 16L;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+        long totalTicks = 0, totalEntities = 0;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < games; i++){
+            GameEngine engine = restore != null ? Checkpoint.restore(Paths.get(restore)) : new GameEngine(scenario, seed + i);
+            Result r = run(engine, ticks, dt, numbered(record, i, games), numbered(checkpoint, i, games));
+            totalTicks += r.ticks;
+            totalEntities += r.entitiesProcessed;
+            if (games <= 10) System.out.println("game seed=" + engine.getSeed() + " score=" + r.score
+                    + String.format(" hash=%016x", r.stateHash) + " poolHits=" + r.poolHits + " poolMisses=" + r.poolMisses);
+        }
+        double secs = (System.nanoTime() - t0) / 1e9;
+        System.out.printf("games=%d ticks=%d time=%.3fs ticks/s=%.0f entities/s=%.0f games/min=%.1f%n",
+                games, totalTicks, secs, totalTicks / secs, totalEntities / secs, games / secs * 60);
+        if (spectators != null){
+            System.out.println("spectators: frames=" + spectators.getFramesSent() + " full=" + spectators.getFullFramesSent()
+                    + " skipped=" + spectators.getFramesSkipped() + " bytes=" + spectators.getBytesSent());
+            spectators.close();
+        }
+    }
+
+    // 取出并移除 "name value" 形式的选项，没有时返回 null
+    private static String option(List<String> args, String name){
+        int at = args.indexOf(name);
+        if (at < 0) return null;
+        if (at + 1 >= args.size()) throw new IllegalArgumentException(name + " needs a file");
+        String v = args.get(at + 1);
+        args.subList(at, at + 2).clear();
+        return v;
+    }
+
+    // 多局时第 i 局的文件名加 ".i" 后缀
+    private static Path numbered(String file, int i, int games){
+        return file == null ? null : Paths.get(games == 1 ? file : file + "." + i);
+    }
+
+    // 单局结果
+    public static class Result {
+        public final long ticks;
+        public final long entitiesProcessed;
+        public final int score;
+        public final long stateHash;
+        public final long poolHits, poolMisses;
+        public Result(long ticks, long entitiesProcessed, int score, long stateHash, long poolHits, long poolMisses){
+            this.ticks = ticks; this.entitiesProcessed = entitiesProcessed; this.score = score;
+            this.stateHash = stateHash; this.poolHits = poolHits; this.poolMisses = poolMisses;
+        }
+    }
+
+    // 运行一局（默认场景）
+    public static Result run(long seed, long ticks, long dt){ return run(Scenario.DEFAULT, seed, ticks, dt); }
+
+    // 运行一局：简单自动驾驶（追最近潜艇并持续投弹，场景允许时同时发射导弹），以便产生碰撞与计分负载
+    public static Result run(Scenario scenario, long seed, long ticks, long dt){
+        try {
+            return run(new GameEngine(scenario, seed), ticks, dt, null, null);
+        } catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 在给定引擎（新建或从检查点恢复）上推进 ticks 个 tick；record 非 null 时录制输入，checkpoint 非 null 时保存检查点
+    public static Result run(GameEngine engine, long ticks, long dt, Path record, Path checkpoint) throws IOException {
+        if (record != null) engine.startRecording(record);
+        TickMetrics metrics = Boolean.getBoolean("navalwar.metrics") ? engine.enableMetrics() : null;
+        if (POOL != null) engine.setParallelism(POOL, PARALLEL_THRESHOLD);
+        engine.startManual();
+        long entities = 0;
+        for (long t = 0; t < ticks; t++){
+            autopilot(engine);
+            engine.tick(dt);
+            entities += engine.getEntityCount();
+            if (spectators != null) spectators.publish(engine);
+            if (checkpoint != null && CHECKPOINT_EVERY > 0 && (t + 1) % CHECKPOINT_EVERY == 0) Checkpoint.save(engine, checkpoint);
+        }
+        if (checkpoint != null) Checkpoint.save(engine, checkpoint);
+        engine.stopRecording();
+        engine.stop();
+        if (metrics != null){
+            metrics.flush();
+            printMetrics(metrics);
+            metrics.unregister();
+        }
+        return new Result(ticks, entities, engine.getScore(), engine.stateHash(), engine.getPoolHits(), engine.getPoolMisses());
+    }
+
+    private static void printMetrics(TickMetrics m){
+        double[] v = new double[4];
+        for (TickMetrics.Phase p : TickMetrics.Phase.values()){
+            if (p.isRender()) continue;
+            m.read(p, v);
+            System.out.printf("  %-12s p50=%8.2fus p99=%8.2fus max=%9.2fus n=%d%n", p.name().toLowerCase(), v[1], v[2], v[3], (long) v[0]);
+        }
+    }
+
+    // 自动驾驶：追最近潜艇，对准后投弹（场景允许时同时发射导弹）；SessionHost 的默认会话驱动
+    public static void autopilot(GameEngine engine){
+        EntityStore subs = engine.getSubStore();
+        double shipCx = engine.getShip().centerX();
+        double bestDx = Double.MAX_VALUE;
+        for (int i = 0, n = subs.size(); i < n; i++){
+            if (!subs.isAlive(i)) continue;
+            double dx = subs.centerX(i) - shipCx;
+            if (Math.abs(dx) < Math.abs(bestDx)) bestDx = dx;
+        }
+        if (bestDx == Double.MAX_VALUE) return;
+        if (engine.getScenario().autopilotMissiles) engine.playerLaunchMissile();
+        if (bestDx < -8) engine.playerMoveLeft();
+        else if (bestDx > 8) engine.playerMoveRight();
+        else engine.playerDropBomb();
+    }
+}
@@ -0,0 +1,47 @@
+package sim;
+
+import engine.GameEngine;
+import engine.InputReplay;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 录制重放入口：以最快速度无头重放 InputRecorder 录制的对局，并与录制结束时的得分、状态哈希逐位比较。
+ * 用法：java sim.ReplayRunner file... [--repeat N]
+ *  - file   : 录制文件（GameEngine.startRecording、HeadlessRunner --record 或 -Dnavalwar.record 产生）
+ *  - repeat : 每个文件重放的次数（默认 1），用于把录制当作确定性的性能回归负载
+ * 输出每个文件的 ticks/s 与校验结果；任一文件不一致时以状态码 1 退出。
+ */
+public class ReplayRunner {
+    public static void main(String[] args) throws IOException {
+        List<String> files = new ArrayList<>(Arrays.asList(args));
+        int repeat = 1;
+        int at = files.indexOf("--repeat");
+        if (at >= 0){
+            if (at + 1 >= files.size()) throw new IllegalArgumentException("--repeat needs a count");
+            repeat = Integer.parseInt(files.get(at + 1));
+            files.subList(at, at + 2).clear();
+        }
+        boolean ok = true;
+        for (String file : files){
+            InputReplay replay = InputReplay.load(Paths.get(file));
+            System.out.println(file + ": seed=" + replay.seed + " scenario=" + replay.scenario
+                    + " ticks=" + replay.ticks + " commands=" + replay.commands);
+            for (int r = 0; r < repeat; r++){
+                long t0 = System.nanoTime();
+                GameEngine e = replay.run(null);
+                double secs = (System.nanoTime() - t0) / 1e9;
+                boolean same = replay.verify(e);
+                ok &= same;
+                System.out.printf("  run %d: %.3fs ticks/s=%.0f score=%d/%d hash=%016x/%016x %s%n",
+                        r + 1, secs, replay.ticks / secs, e.getScore(), replay.score,
+                        e.stateHash(), replay.stateHash, same ? "OK" : "MISMATCH");
+            }
+        }
+        if (!ok) System.exit(1);
+    }
+}
@@ -0,0 +1,282 @@
+package sim;
+
+import engine.GameEngine;
+import engine.LatencyHistogram;
+import engine.Scenario;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 多会话模拟宿主：在一个 JVM 内同时运行大量相互独立的无头对局（机器人对战、压测）。
+ *
+ * 每个会话是一个独立线程上的循环（JDK 21+ 为虚拟线程，经反射调用 Executors.newVirtualThreadPerTaskExecutor，
+ * 更早的 JDK 退回为每会话一个平台守护线程），驱动自己的 GameEngine（手动步进模式）。
+ *  - 共享调度：推进 tick 前须取得公平信号量 cpu 的许可（默认等于 CPU 数），同时计算的会话数不超过许可数，
+ *    其余会话排队，不会因成千上万个可运行线程而互相抢占；
+ *  - 每会话 tick 预算：每次取得许可最多推进 slice 个 tick 后让出；会话总长 ticks 个 tick；
+ *    实时会话（paced）按 stepMs 的墙钟节奏推进，落后时一次最多追赶 slice 步，超出的整步丢弃（同 GameLoop）；
+ *  - 背压：同时存在的会话数不超过 maxSessions；排队等待许可的平均时间（EWMA）超过 saturationNanos 时视为饱和，
+ *    trySubmit 拒绝、submit 阻塞，直到宿主恢复；
+ *  - 聚合统计：stats() 返回会话数、总 tick、区间 ticks/s、许可等待 p50/p99 与丢弃步数。
+ */
+public final class SessionHost implements AutoCloseable {
+    private static final AtomicInteger hostIds = new AtomicInteger();
+
+    // 会话参数（链式设置）
+    public static final class Spec {
+        final Scenario scenario;
+        final long seed;
+        long ticks = 60_000;
+        long stepMs = 16;
+        boolean paced = false;
+        int slice = 8;
+        Consumer<GameEngine> driver = HeadlessRunner::autopilot;
+
+        public Spec(Scenario scenario, long seed){ this.scenario = scenario; this.seed = seed; }
+
+        // 对局长度（tick 数）
+        public Spec ticks(long n){ this.ticks = n; return this; }
+        public Spec step(long stepMs){ this.stepMs = stepMs; return this; }
+        // true：按墙钟实时推进；false：尽可能快
+        public Spec paced(boolean on){ this.paced = on; return this; }
+        // 每次取得调度许可最多推进的 tick 数
+        public Spec slice(int ticks){ this.slice = Math.max(1, ticks); return this; }
+        // 每个 tick 之前在会话线程上调用（输入/机器人逻辑），默认 HeadlessRunner.autopilot
+        public Spec driver(Consumer<GameEngine> d){ this.driver = d; return this; }
+    }
+
+    public final class Session implements Runnable {
+        public final int id;
+        public final GameEngine engine;
+        private final Spec spec;
+        private final CompletableFuture<Session> done = new CompletableFuture<>();
+        private volatile long ticksDone = 0, droppedSteps = 0;
+        private volatile boolean cancelled = false;
+
+        private Session(int id, Spec spec){
+            this.id = id;
+            this.spec = spec;
+            this.engine = new GameEngine(spec.scenario, spec.seed);
+        }
+
+        public long getTicks(){ return ticksDone; }
+        public long getDroppedSteps(){ return droppedSteps; }
+        // 会话结束（正常结束或取消）时完成；异常结束时以该异常完成
+        public CompletableFuture<Session> done(){ return done; }
+        public void cancel(){ cancelled = true; }
+
+        @Override
+        public void run(){
+            Spec s = spec;
+            long stepNanos = s.stepMs * 1_000_000L;
+            engine.startManual();
+            try {
+                long prev = System.nanoTime(), acc = stepNanos, count = 0;
+                while (!cancelled && count < s.ticks){
+                    long n = s.slice;
+                    if (s.paced){
+                        long now = System.nanoTime();
+                        acc += now - prev;
+                        prev = now;
+                        if (acc < stepNanos){ LockSupport.parkNanos(stepNanos - acc); continue; }
+                        n = Math.min(n, acc / stepNanos);
+                    }
+                    n = Math.min(n, s.ticks - count);
+                    long w0 = System.nanoTime();
+                    cpu.acquire();
+                    try {
+                        recordWait(System.nanoTime() - w0);
+                        for (long i = 0; i < n; i++){
+                            s.driver.accept(engine);
+                            engine.tick(s.stepMs);
+                        }
+                    } finally {
+                        cpu.release();
+                    }
+                    count += n;
+                    ticksDone = count;
+                    totalTicks.add(n);
+                    if (s.paced){
+                        acc -= n * stepNanos;
+                        // 追赶上限：丢弃积压的整步
+                        if (acc >= stepNanos){
+                            droppedSteps += acc / stepNanos;
+                            totalDropped.add(acc / stepNanos);
+                            acc %= stepNanos;
+                        }
+                    }
+                }
+                engine.stop();
+                completed.increment();
+                done.complete(this);
+            } catch (Throwable e){
+                engine.stop();
+                failed.increment();
+                done.completeExceptionally(e);
+            } finally {
+                sessions.remove(id);
+                slots.release();
+            }
+        }
+    }
+
+    // 聚合统计快照
+    public static final class Stats {
+        public final int active;
+        public final long completed, failed, rejected, ticks, droppedSteps;
+        public final double ticksPerSecond;         // 自上次 stats() 以来
+        public final double waitP50us, waitP99us;  // 同一区间内取得调度许可的等待时间
+        public final boolean saturated;
+
+        Stats(int active, long completed, long failed, long rejected, long ticks, long droppedSteps,
+              double ticksPerSecond, double waitP50us, double waitP99us, boolean saturated){
+            this.active = active; this.completed = completed; this.failed = failed; this.rejected = rejected;
+            this.ticks = ticks; this.droppedSteps = droppedSteps; this.ticksPerSecond = ticksPerSecond;
+            this.waitP50us = waitP50us; this.waitP99us = waitP99us; this.saturated = saturated;
+        }
+
+        @Override
+        public String toString(){
+            return String.format("active=%d completed=%d failed=%d rejected=%d ticks=%d ticks/s=%.0f wait p50=%.1fus p99=%.1fus dropped=%d%s",
+                    active, completed, failed, rejected, ticks, ticksPerSecond, waitP50us, waitP99us, droppedSteps,
+                    saturated ? " SATURATED" : "");
+        }
+    }
+
+    private final ExecutorService threads;
+    private final boolean virtualThreads;
+    private final Semaphore cpu;
+    private final Semaphore slots;
+    private final long saturationNanos;
+    private final Map<Integer, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final LongAdder totalTicks = new LongAdder(), totalDropped = new LongAdder();
+    private final LongAdder completed = new LongAdder(), failed = new LongAdder(), rejected = new LongAdder();
+    // 许可等待：直方图由各会话线程在锁内写入；EWMA 为近似值（并发更新可能丢失个别样本）
+    private final LatencyHistogram waits = new LatencyHistogram();
+    private volatile long waitEwma = 0;
+    private long statsNanos = System.nanoTime(), statsTicks = 0;
+
+    // 默认：调度许可 = CPU 数，最多 10000 个会话，平均等待超过 4ms 视为饱和
+    public SessionHost(){
+        this(Runtime.getRuntime().availableProcessors(), 10_000, 4_000_000L);
+    }
+
+    public SessionHost(int parallelism, int maxSessions, long saturationNanos){
+        this.cpu = new Semaphore(Math.max(1, parallelism), true);
+        this.slots = new Semaphore(Math.max(1, maxSessions));
+        this.saturationNanos = saturationNanos;
+        ExecutorService vt = virtualThreadExecutor();
+        this.virtualThreads = vt != null;
+        this.threads = vt != null ? vt : Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "session-host-" + hostIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // JDK 21+ 的虚拟线程执行器（反射调用，以便在更早的 JDK 上编译运行）；不可用时返回 null
+    private static ExecutorService virtualThreadExecutor(){
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e){
+            return null;
+        }
+    }
+
+    public boolean usesVirtualThreads(){ return virtualThreads; }
+
+    // 仍有会话在运行且排队等待调度许可的平均时间超过阈值（没有会话时 EWMA 不再更新，视为空闲）
+    public boolean isSaturated(){ return !sessions.isEmpty() && waitEwma > saturationNanos; }
+
+    public int activeSessions(){ return sessions.size(); }
+
+    // 宿主已满（会话数达到上限）或饱和时立即返回 null（计入 rejected）
+    public Session trySubmit(Spec spec){
+        if (isSaturated() || !slots.tryAcquire()){
+            rejected.increment();
+            return null;
+        }
+        return start(spec);
+    }
+
+    // 阻塞直到宿主有空位且不再饱和
+    public Session submit(Spec spec) throws InterruptedException {
+        slots.acquire();
+        while (isSaturated()) Thread.sleep(1);
+        return start(spec);
+    }
+
+    private Session start(Spec spec){
+        Session s = null;
+        try {
+            s = new Session(nextId.incrementAndGet(), spec);
+            sessions.put(s.id, s);
+            threads.execute(s);
+            return s;
+        } catch (RuntimeException | Error e){
+            if (s != null) sessions.remove(s.id);
+            slots.release();
+            throw e;
+        }
+    }
+
+    private void recordWait(long nanos){
+        synchronized (waits){ waits.record(nanos); }
+        long e = waitEwma;
+        waitEwma = e + ((nanos - e) >> 4);
+    }
+
+    /**
+     * 聚合统计；ticks/s 与等待分位数覆盖自上次调用以来的区间（调用后清零该区间）。
+     * 用于周期性的监控输出，应由单一线程调用。
+     */
+    public synchronized Stats stats(){
+        long now = System.nanoTime(), ticks = totalTicks.sum();
+        double secs = (now - statsNanos) / 1e9;
+        double rate = secs > 0 ? (ticks - statsTicks) / secs : 0;
+        statsNanos = now; statsTicks = ticks;
+        double p50, p99;
+        synchronized (waits){
+            p50 = waits.percentile(0.50) / 1e3;
+            p99 = waits.percentile(0.99) / 1e3;
+            waits.reset();
+        }
+        return new Stats(sessions.size(), completed.sum(), failed.sum(), rejected.sum(), ticks, totalDropped.sum(),
+                rate, p50, p99, isSaturated());
+    }
+
+    // 等待全部已提交会话结束（最多 timeout）
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!sessions.isEmpty()){
+            if (System.nanoTime() >= deadline) return false;
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    // 取消全部会话并关闭线程
+    @Override
+    public void close(){
+        for (Session s : sessions.values()) s.cancel();
+        threads.shutdown();
+        try {
+            threads.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package sim;
+
+import engine.Scenario;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多会话压测入口：在一个 SessionHost 上同时运行大量自动驾驶对局，每秒打印一次聚合统计。
+ * 用法：java sim.SessionRunner [--scenario file] [sessions] [ticks] [paced] [parallelism]
+ *  - sessions    : 会话数（默认 1000，种子依次为 1..sessions）
+ *  - ticks       : 每个会话的 tick 数（默认 3750，实时约 60 秒）
+ *  - paced       : true 时按 16ms 墙钟节奏实时推进（默认），false 时尽可能快
+ *  - parallelism : 调度许可数（默认 CPU 数）
+ * 提交使用阻塞的 submit，宿主饱和时提交方自动放慢（背压）。JDK 21+ 上会话运行在虚拟线程上。
+ */
+public class SessionRunner {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Scenario scenario = Scenario.DEFAULT;
+        List<String> rest = new ArrayList<>(Arrays.asList(args));
+        int at = rest.indexOf("--scenario");
+        if (at >= 0){
+            if (at + 1 >= rest.size()) throw new IllegalArgumentException("--scenario needs a file");
+            scenario = Scenario.load(Paths.get(rest.get(at + 1)));
+            rest.subList(at, at + 2).clear();
+        }
+        args = rest.toArray(new String[0]);
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long ticks = args.length > 1 ? Long.parseLong(args[1]) : 3750;
+        boolean paced = args.length <= 2 || Boolean.parseBoolean(args[2]);
+        int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        try (SessionHost host = new SessionHost(parallelism, 10_000, 4_000_000L)){
+            System.out.println("sessions=" + sessions + " ticks=" + ticks + " paced=" + paced + " parallelism=" + parallelism
+                    + " virtualThreads=" + host.usesVirtualThreads());
+            long t0 = System.nanoTime(), nextReport = t0 + 1_000_000_000L;
+            for (int i = 1; i <= sessions; i++){
+                host.submit(new SessionHost.Spec(scenario, i).ticks(ticks).paced(paced));
+                if (System.nanoTime() >= nextReport){ System.out.println(host.stats()); nextReport += 1_000_000_000L; }
+            }
+            while (!host.awaitIdle(1, TimeUnit.SECONDS)) System.out.println(host.stats());
+            SessionHost.Stats s = host.stats();
+            double secs = (System.nanoTime() - t0) / 1e9;
+            System.out.println(s);
+            System.out.printf("total time=%.2fs ticks=%d avg ticks/s=%.0f%n", secs, s.ticks, s.ticks / secs);
+        }
+    }
+}
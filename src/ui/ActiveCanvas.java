@@ -0,0 +1,78 @@
+package ui;
+
+import engine.GameEngine;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.util.function.IntSupplier;
+
+/**
+ * 主动渲染画布：独立渲染线程在 BufferStrategy（显存中的 VolatileImage 后备缓冲，翻页/拷贝由驱动完成）上绘制，
+ * 不经过 Swing 的 repaint 合并与 EDT 调度。每帧按显示器刷新率定时，缓冲内容丢失时重绘。
+ * 通过系统属性 -Dnavalwar.render=active 启用（见 GameWindow）。
+ */
+class ActiveCanvas extends Canvas {
+    private static final long serialVersionUID = 1L;
+    private final GameEngine engine;
+    private final SceneRenderer renderer;
+    private final IntSupplier weapon;
+    private final long frameNanos;
+    private volatile boolean running = false;
+    private Thread thread;
+
+    ActiveCanvas(GameEngine engine, SceneRenderer renderer, IntSupplier weapon, int refreshHz){
+        this.engine = engine;
+        this.renderer = renderer;
+        this.weapon = weapon;
+        this.frameNanos = 1_000_000_000L / Math.max(1, refreshHz);
+        setIgnoreRepaint(true);
+        setFocusable(false); // 窗口本身接收键盘
+    }
+
+    // 启动渲染线程（需在画布可显示之后调用）
+    synchronized void start(){
+        if (running) return;
+        createBufferStrategy(2);
+        running = true;
+        thread = new Thread(this::loop, "render");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    synchronized void stop(){
+        running = false;
+        if (thread != null){
+            try { thread.join(1000); } catch (InterruptedException e){ Thread.currentThread().interrupt(); }
+            thread = null;
+        }
+    }
+
+    private void loop(){
+        BufferStrategy bs = getBufferStrategy();
+        long next = System.nanoTime();
+        while (running){
+            do {
+                do {
+                    Graphics2D g = (Graphics2D) bs.getDrawGraphics();
+                    try {
+                        renderer.render(g, getWidth(), getHeight(), engine.acquireSnapshot(), weapon.getAsInt(), System.nanoTime());
+                    } finally {
+                        g.dispose();
+                    }
+                } while (bs.contentsRestored());
+                bs.show();
+            } while (bs.contentsLost());
+            Toolkit.getDefaultToolkit().sync();
+
+            // 按刷新率定时；落后超过一帧时不追赶
+            next += frameNanos;
+            long sleep = next - System.nanoTime();
+            if (sleep > 0){
+                try { Thread.sleep(sleep / 1_000_000L, (int)(sleep % 1_000_000L)); }
+                catch (InterruptedException e){ return; }
+            } else {
+                next = System.nanoTime();
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ui;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 游戏图片资源（源图）。加载失败的图片为 null，渲染时只对这些图片回退到矢量绘制。
+ * 源图只用于生成 SpriteCache 中的预缩放/预旋转版本，逐帧绘制不直接使用它们。
+ *
+ * loadAsync 在后台线程池中并行解码全部 PNG（不占用 EDT），再把成功解码的图片打包进一张
+ * 屏幕兼容格式的图集（atlas），各字段是图集的子图。解码与打包耗时记录到 StartupMetrics。
+ */
+public final class Assets {
+    // 文件名，顺序与 slot 对应
+    private static final String[] FILES = {
+            "background.png", "ship0.png", "ship1.png", "boom.png", "missile.png",
+            "q1.png", "q2.png", "r1.png", "h2.png", "b.png", "b1.png", "b2.png" };
+
+    public BufferedImage background;
+    public final BufferedImage[] ship = new BufferedImage[2];       // ship0, ship1（按朝向）
+    public BufferedImage bomb;
+    public BufferedImage missile;
+    public final BufferedImage[] sub = new BufferedImage[4];        // q1, q2, r1, h2
+    public final BufferedImage[] explosion = new BufferedImage[3];  // b, b1, b2
+    // 打包后的图集（没有任何图片成功加载时为 null）与加载失败的文件名
+    public BufferedImage atlas;
+    public final List<String> failed = new ArrayList<>();
+
+    // 空资源：全部走矢量绘制（异步加载完成之前使用）
+    public static Assets empty(){ return new Assets(); }
+
+    // 同步加载（无头工具使用）：等价于 loadAsync(dir, null).join()
+    public static Assets load(String dir){ return loadAsync(dir, null).join(); }
+
+    /**
+     * 在后台并行解码 dir 下的全部图片并打包为图集；gc 为 null 时（无屏幕）图集使用预乘 ARGB。
+     * 返回的 future 在打包完成后完成，回调运行在后台线程上。
+     */
+    public static CompletableFuture<Assets> loadAsync(String dir, GraphicsConfiguration gc){
+        int threads = Math.min(FILES.length, Math.max(2, Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "asset-loader");
+            t.setDaemon(true);
+            return t;
+        });
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        CompletableFuture<BufferedImage>[] decodes = new CompletableFuture[FILES.length];
+        for (int i = 0; i < FILES.length; i++){
+            String name = FILES[i];
+            decodes[i] = CompletableFuture.supplyAsync(() -> read(dir, name), pool);
+        }
+        return CompletableFuture.allOf(decodes).thenApplyAsync(v -> {
+            StartupMetrics.mark("assets-decoded");
+            BufferedImage[] images = new BufferedImage[FILES.length];
+            for (int i = 0; i < FILES.length; i++) images[i] = decodes[i].join();
+            Assets a = pack(images, gc);
+            StartupMetrics.mark("atlas-packed");
+            return a;
+        }, pool).whenComplete((a, ex) -> pool.shutdown());
+    }
+
+    private static BufferedImage read(String dir, String name){
+        try { return ImageIO.read(new File(dir, name)); } catch (IOException e){ return null; }
+    }
+
+    // 把解码结果打包进图集并按 slot 分配到字段
+    private static Assets pack(BufferedImage[] images, GraphicsConfiguration gc){
+        Assets a = new Assets();
+        SpriteAtlas atlas = new SpriteAtlas(images, gc);
+        a.atlas = atlas.image();
+        BufferedImage[] s = new BufferedImage[FILES.length];
+        for (int i = 0; i < FILES.length; i++){
+            s[i] = atlas.region(i);
+            if (s[i] == null) a.failed.add(FILES[i]);
+        }
+        a.background = s[0];
+        a.ship[0] = s[1]; a.ship[1] = s[2];
+        a.bomb = s[3];
+        a.missile = s[4];
+        a.sub[0] = s[5]; a.sub[1] = s[6]; a.sub[2] = s[7]; a.sub[3] = s[8];
+        a.explosion[0] = s[9]; a.explosion[1] = s[10]; a.explosion[2] = s[11];
+        return a;
+    }
+}
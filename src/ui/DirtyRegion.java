@@ -0,0 +1,112 @@
+package ui;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * 被动重绘的脏区跟踪：把每帧实体绘制的包围盒记到 TILE 像素的格子位图上，
+ * 需要重绘的是「上一帧画过的格子 ∪ 本帧要画的格子」（前者擦除旧位置，后者绘制新位置）。
+ * 脏格子按行合并为水平条带，再把上下相邻且横向范围相同的条带合并为矩形。
+ * 脏格子占比超过 maxCoverage，或尺寸变化、调用 invalidate 后，本帧整面重绘。仅供 EDT 使用。
+ */
+final class DirtyRegion {
+    static final int TILE = 16;
+    private static final int PAD = 2; // 抗锯齿边缘等溢出包围盒的像素
+
+    private final double maxCoverage;
+    private int width = -1, height = -1, cols, rows, words;
+    private long[] prev = new long[0], cur = new long[0];
+    private boolean full = true;
+    private Rectangle[] rects = new Rectangle[16];
+    private int count = 0;
+    private final Rectangle bounds = new Rectangle();
+
+    DirtyRegion(double maxCoverage){ this.maxCoverage = maxCoverage; }
+
+    // 下一帧整面重绘（资源换入、叠加层切换等）
+    void invalidate(){ full = true; }
+
+    // 开始一帧：w×h 为绘制区域尺寸；本帧的格子清空，上一帧的保留用于擦除
+    void begin(int w, int h){
+        if (w != width || h != height){
+            width = w; height = h;
+            cols = (Math.max(1, w) + TILE - 1) / TILE;
+            rows = (Math.max(1, h) + TILE - 1) / TILE;
+            words = (cols + 63) >>> 6;
+            prev = new long[rows * words];
+            cur = new long[rows * words];
+            full = true;
+        }
+        long[] t = prev; prev = cur; cur = t;
+        Arrays.fill(cur, 0);
+    }
+
+    // 本帧将绘制的区域
+    void add(int x, int y, int w, int h){
+        int c0 = Math.max(0, (x - PAD) / TILE), c1 = Math.min(cols - 1, (x + w + PAD) / TILE);
+        int r0 = Math.max(0, (y - PAD) / TILE), r1 = Math.min(rows - 1, (y + h + PAD) / TILE);
+        if (x + w + PAD < 0 || y + h + PAD < 0 || c0 > c1 || r0 > r1) return;
+        for (int r = r0; r <= r1; r++){
+            int base = r * words;
+            for (int c = c0; c <= c1; c++) cur[base + (c >>> 6)] |= 1L << c;
+        }
+    }
+
+    /**
+     * 结束一帧并生成重绘矩形；返回 true 表示应整面重绘（此时矩形列表无意义）。
+     */
+    boolean finish(){
+        count = 0;
+        if (full){ full = false; return true; }
+        int dirty = 0;
+        for (int k = 0; k < cur.length; k++) dirty += Long.bitCount(prev[k] | cur[k]);
+        if (dirty > maxCoverage * cols * rows) return true;
+        for (int r = 0; r < rows; r++){
+            int rowStart = count;
+            int base = r * words;
+            for (int c = 0; c < cols; ){
+                if (!bit(base, c)){ c++; continue; }
+                int c0 = c;
+                while (c < cols && bit(base, c)) c++;
+                int x = c0 * TILE, w = (c - c0) * TILE, y = r * TILE;
+                if (!extend(rowStart, x, w, y)) push(x, y, w, TILE);
+            }
+        }
+        // 最后一列/一行的格子可能超出绘制区域
+        for (int i = 0; i < count; i++){
+            Rectangle q = rects[i];
+            q.width = Math.min(q.width, width - q.x);
+            q.height = Math.min(q.height, height - q.y);
+        }
+        return false;
+    }
+
+    private boolean bit(int base, int c){ return ((prev[base + (c >>> 6)] | cur[base + (c >>> 6)]) & (1L << c)) != 0; }
+
+    // 之前各行生成的矩形中横向范围相同且正好在上方结束的，向下延伸一行
+    private boolean extend(int end, int x, int w, int y){
+        for (int i = 0; i < end; i++){
+            Rectangle p = rects[i];
+            if (p.x == x && p.width == w && p.y + p.height == y){ p.height += TILE; return true; }
+        }
+        return false;
+    }
+
+    private void push(int x, int y, int w, int h){
+        if (count == rects.length) rects = Arrays.copyOf(rects, count * 2);
+        Rectangle r = rects[count];
+        if (r == null) rects[count] = new Rectangle(x, y, w, h);
+        else r.setBounds(x, y, w, h);
+        count++;
+    }
+
+    int count(){ return count; }
+    Rectangle get(int i){ return rects[i]; }
+
+    // 全部重绘矩形的外接矩形
+    Rectangle bounds(){
+        bounds.setBounds(rects[0]);
+        for (int i = 1; i < count; i++) bounds.add(rects[i]);
+        return bounds;
+    }
+}
@@ -0,0 +1,39 @@
+package ui;
+
+/**
+ * 帧时间统计：记录最近 WINDOW 帧的帧间隔（纳秒），提供平均帧率与窗口内最长帧。
+ * 只由渲染线程写入，其他线程读取到的是近似值（仅用于显示/诊断）。
+ */
+public final class FrameStats {
+    private static final int WINDOW = 120;
+    private final long[] intervals = new long[WINDOW];
+    private int next = 0, filled = 0;
+    private long last = 0, sum = 0, frames = 0;
+
+    // 在每帧开始时调用
+    public void frame(long nowNanos){
+        if (last != 0){
+            long d = nowNanos - last;
+            sum += d - intervals[next];
+            intervals[next] = d;
+            next = (next + 1) % WINDOW;
+            if (filled < WINDOW) filled++;
+        }
+        last = nowNanos;
+        frames++;
+    }
+
+    public long frames(){ return frames; }
+
+    // 窗口内平均帧间隔（ms），没有数据时为 0
+    public double avgMs(){ return filled == 0 ? 0 : sum / 1e6 / filled; }
+
+    // 窗口内最长帧间隔（ms）
+    public double maxMs(){
+        long m = 0;
+        for (int i = 0; i < filled; i++) if (intervals[i] > m) m = intervals[i];
+        return m / 1e6;
+    }
+
+    public double fps(){ double a = avgMs(); return a == 0 ? 0 : 1000.0 / a; }
+}
@@ -0,0 +1,115 @@
+package ui;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * HUD 缓存层：状态文本预先栅格化到一张透明图片，逐帧只做一次 drawImage。
+ * 只有显示的值（分数、军舰位置、实体数量、武器、冷却、帧率）变化时才重新排版与栅格化；
+ * 文本用复用的 StringBuilder 拼接，不使用 String.format，也不逐帧创建 Font；图片的 Graphics2D 随图片创建一次并复用，
+ * 重新栅格化时不再分配。
+ * 帧率行每 FPS_REFRESH_NANOS 才取一次新值，避免每帧都触发重绘。仅供单一渲染线程使用。
+ */
+final class HudLayer {
+    private static final Font FONT = new Font("SansSerif", Font.BOLD, 14);
+    static final int HEIGHT = 70;
+    private static final long FPS_REFRESH_NANOS = 500_000_000L;
+
+    private final SpriteCache sprites;
+    private final StringBuilder sb = new StringBuilder(64);
+    private char[] chars = new char[64];
+    private BufferedImage image;
+    private Graphics2D graphics; // image 的绘制上下文（随 image 重建）
+    private boolean dirty = true;
+    private long rasterCount = 0;
+
+    // 上一次栅格化时的值
+    private int score = -1, shipX10 = Integer.MIN_VALUE, bombs = -1, subs = -1, exps = -1, weapon = -1;
+    private long cooldown = -1;
+    private int fps = -1, avg10 = -1, max10 = -1;
+    private long fpsSampledAt = 0;
+
+    HudLayer(SpriteCache sprites){ this.sprites = sprites; }
+
+    // 更新显示值（值不变时什么也不做）
+    void update(int score, double shipX, int bombs, int subs, int exps, int weapon, long cooldown,
+                FrameStats stats, long nowNanos){
+        int sx10 = (int)Math.round(shipX * 10);
+        if (score != this.score || sx10 != shipX10 || bombs != this.bombs || subs != this.subs
+                || exps != this.exps || weapon != this.weapon || cooldown != this.cooldown){
+            this.score = score; this.shipX10 = sx10; this.bombs = bombs; this.subs = subs;
+            this.exps = exps; this.weapon = weapon; this.cooldown = cooldown;
+            dirty = true;
+        }
+        if (nowNanos - fpsSampledAt >= FPS_REFRESH_NANOS){
+            fpsSampledAt = nowNanos;
+            int f = (int)Math.round(stats.fps()), a = (int)Math.round(stats.avgMs() * 10), m = (int)Math.round(stats.maxMs() * 10);
+            if (f != fps || a != avg10 || m != max10){ fps = f; avg10 = a; max10 = m; dirty = true; }
+        }
+    }
+
+    // 绘制缓存的 HUD 图片（必要时先重新栅格化）
+    void draw(Graphics2D g, int width){
+        if (image == null || image.getWidth() != width){
+            if (graphics != null) graphics.dispose();
+            image = sprites.createCompatible(Math.max(1, width), HEIGHT);
+            graphics = image.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setColor(Color.WHITE);
+            graphics.setFont(FONT);
+            dirty = true;
+        }
+        if (dirty) raster();
+        g.drawImage(image, 0, 0, null);
+    }
+
+    // 显示值自上次栅格化以来是否变化（被动重绘据此决定是否重绘 HUD 区域）
+    boolean isDirty(){ return dirty || image == null; }
+
+    // 栅格化次数（诊断用：稳态下应远小于帧数）
+    long rasterCount(){ return rasterCount; }
+
+    private void raster(){
+        Graphics2D g = graphics;
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, image.getWidth(), HEIGHT);
+        g.setComposite(AlphaComposite.SrcOver);
+
+        // Score=%d ShipX=%.1f bombs=%d subs=%d exps=%d
+        sb.setLength(0);
+        sb.append("Score=").append(score).append(" ShipX=");
+        appendTenths(sb, shipX10);
+        sb.append(" bombs=").append(bombs).append(" subs=").append(subs).append(" exps=").append(exps);
+        drawLine(g, 20);
+
+        // Weapon: %s  CD: %dms
+        sb.setLength(0);
+        sb.append("Weapon: ").append(weapon == 1 ? "BOMB" : "MISSILE").append("  CD: ").append(cooldown).append("ms");
+        drawLine(g, 40);
+
+        // FPS %.0f  avg %.1fms  max %.1fms
+        sb.setLength(0);
+        sb.append("FPS ").append(fps).append("  avg ");
+        appendTenths(sb, avg10);
+        sb.append("ms  max ");
+        appendTenths(sb, max10);
+        sb.append("ms");
+        drawLine(g, 60);
+
+        dirty = false;
+        rasterCount++;
+    }
+
+    private void drawLine(Graphics2D g, int y){
+        int n = sb.length();
+        if (chars.length < n) chars = new char[n * 2];
+        sb.getChars(0, n, chars, 0);
+        g.drawChars(chars, 0, n, 10, y);
+    }
+
+    // 以一位小数输出 v/10
+    private static void appendTenths(StringBuilder sb, int v10){
+        if (v10 < 0){ sb.append('-'); v10 = -v10; }
+        sb.append(v10 / 10).append('.').append(v10 % 10);
+    }
+}
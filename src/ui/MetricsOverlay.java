@@ -0,0 +1,58 @@
+package ui;
+
+import engine.TickMetrics;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * 性能叠加层（F3 切换）：显示 TickMetrics 最近一个完整区间内各阶段的 p50/p99/max（微秒）与实体数量。
+ * 与 HudLayer 一样缓存为透明图片，只有统计区间轮换（约每秒一次）时才重新栅格化。仅供渲染线程使用。
+ */
+final class MetricsOverlay {
+    private static final Font FONT = new Font("Monospaced", Font.PLAIN, 12);
+    private static final Color BACKDROP = new Color(0, 0, 0, 150);
+    private static final int LINE = 14;
+    private static final TickMetrics.Phase[] PHASES = TickMetrics.Phase.values();
+    static final int WIDTH = 345, HEIGHT = (PHASES.length + 3) * LINE + 8;
+
+    private final SpriteCache sprites;
+    private final double[] v = new double[4];
+    private BufferedImage image;
+    private long seq = -1;
+
+    MetricsOverlay(SpriteCache sprites){ this.sprites = sprites; }
+
+    void draw(Graphics2D g, TickMetrics m, int x, int y){
+        if (image == null){
+            image = sprites.createCompatible(WIDTH, HEIGHT);
+            seq = -1;
+        }
+        long s = m.publishedSeq();
+        if (s != seq){ raster(m); seq = s; }
+        g.drawImage(image, x, y, null);
+    }
+
+    private void raster(TickMetrics m){
+        Graphics2D g = image.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.setColor(BACKDROP);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.setComposite(AlphaComposite.SrcOver);
+        g.setFont(FONT);
+        g.setColor(Color.WHITE);
+        int y = LINE;
+        g.drawString(String.format("%-12s %8s %8s %8s %6s", "phase(us)", "p50", "p99", "max", "n"), 6, y);
+        for (TickMetrics.Phase p : PHASES){
+            m.read(p, v);
+            y += LINE;
+            g.drawString(String.format("%-12s %8.1f %8.1f %8.1f %6d", p.name().toLowerCase(), v[1], v[2], v[3], (long) v[0]), 6, y);
+        }
+        y += LINE;
+        g.drawString(String.format("bombs=%d subs=%d exps=%d missiles=%d",
+                m.getBombs(), m.getSubs(), m.getExplosions(), m.getMissiles()), 6, y);
+        y += LINE;
+        g.drawString("interval " + m.getIntervalMillis() + "ms  (F3 hide)", 6, y);
+        g.dispose();
+    }
+}
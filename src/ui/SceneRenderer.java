@@ -0,0 +1,288 @@
+package ui;
+
+import engine.FrameSnapshot;
+import engine.TickMetrics;
+import entities.Missile;
+import entities.Submarine;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * 场景绘制：把一帧快照画到任意 Graphics2D 上（被动重绘的 DrawPanel 与主动渲染的 ActiveCanvas 共用）。
+ * 图片经 SpriteCache 预缩放/预旋转，逐帧只做 1:1 drawImage；缺图时回退到矢量绘制。
+ * 背景与海面在尺寸变化时烘焙为一张不透明图片（静态层），HUD 文本缓存在 HudLayer 中，
+ * 因此每帧静态部分只剩两次 drawImage。
+ * 被动重绘路径先调用 damage 求出本帧的脏区，只重绘这些区域：绘制时按 Graphics 的裁剪区跳过区域外的实体，
+ * 同一帧（相同 nowNanos）的多次局部绘制只计一帧。
+ * 世界可以比绘制区域宽：镜头水平跟随军舰（限制在世界范围内），实体按镜头平移并裁剪到视口，视口外的实体不绘制；
+ * 背景、海面与 HUD 固定在屏幕上。
+ * 不依赖窗口，也可以绘制到 BufferedImage 上（无头渲染）。仅供单一渲染线程使用。
+ */
+public final class SceneRenderer {
+    private static final Color SKY = new Color(135, 206, 235);
+    private static final Color SEA = new Color(28, 107, 160, 220);
+    private static final double MAX_DIRTY_COVERAGE = 0.5; // 脏格子超过该比例时整面重绘
+    private static final int OVERLAY_X = 10, OVERLAY_Y = 72;
+
+    private Assets assets;
+    private volatile Assets pendingAssets; // 后台加载完成的资源，下一帧开始时换入
+    private boolean assetsReady = false;
+    private boolean assetsFrameMarked = false; // 已记录资源加载完成后的第一帧（启动计时只需一次）
+    private final SpriteCache sprites;
+    private final int seaTop;
+    private final FrameStats stats = new FrameStats();
+    private final HudLayer hud;
+    private final MetricsOverlay overlay;
+    private volatile TickMetrics metrics;      // 非 null 时记录每帧绘制耗时（RENDER）与按键到画面的延迟（INPUT_PHOTON）
+    private long photonInputNanos = 0;         // 已记录 INPUT_PHOTON 的指令时刻（快照可能在多帧中重复携带）
+    private volatile boolean overlayVisible = false;
+    private BufferedImage staticLayer; // 背景 + 海面，按当前绘制尺寸烘焙
+    private final DirtyRegion dirty = new DirtyRegion(MAX_DIRTY_COVERAGE);
+    private long damageNanos = Long.MIN_VALUE, frameNanos = Long.MIN_VALUE; // 最近一次 damage / render 的帧时刻
+    private int damageCamera = 0;                   // 最近一次 damage 的镜头位置（移动时整面重绘）
+    private final Rectangle view = new Rectangle(); // 没有裁剪区时的视口（世界坐标）
+
+    public SceneRenderer(Assets assets, SpriteCache sprites, int seaTop){
+        this.assets = assets;
+        this.sprites = sprites;
+        this.seaTop = seaTop;
+        this.hud = new HudLayer(sprites);
+        this.overlay = new MetricsOverlay(sprites);
+    }
+
+    // 记录绘制耗时并可显示性能叠加层
+    public void setMetrics(TickMetrics m){ this.metrics = m; }
+    public void toggleOverlay(){ overlayVisible = !overlayVisible; dirty.invalidate(); }
+    public boolean isOverlayVisible(){ return overlayVisible; }
+
+    // 换入新资源（可在任意线程调用，例如异步加载完成的回调）；下一帧起生效
+    public void setAssets(Assets a){ pendingAssets = a; }
+
+    public FrameStats getStats(){ return stats; }
+    public SpriteCache getSprites(){ return sprites; }
+    // HUD 重新栅格化的次数（诊断用）
+    public long getHudRasterCount(){ return hud.rasterCount(); }
+
+    /**
+     * 被动重绘：计算在 nowNanos 绘制快照 f 需要重绘的区域，即上一次计算时画过的区域 ∪ 本次将画的区域
+     * （军舰、炸弹、导弹、潜艇与爆炸的插值包围盒，HUD 值变化时的 HUD 区域，可见时的性能叠加层）。
+     * 返回 null 表示应整面重绘（首帧、尺寸变化、资源换入、叠加层切换或脏区超过阈值）。
+     * 随后的 render 必须使用同一 f、weapon 与 nowNanos，绘制内容才与脏区一致。
+     */
+    DirtyRegion damage(FrameSnapshot f, int w, int h, int weapon, long nowNanos){
+        damageNanos = nowNanos;
+        if (swapAssets()) dirty.invalidate();
+        dirty.begin(w, h);
+        double a = f.alpha(nowNanos);
+        int sx = (int)(f.shipPrevX + (f.shipX - f.shipPrevX) * a), cam = camera(f, sx, w);
+        if (cam != damageCamera){ damageCamera = cam; dirty.invalidate(); }
+        dirty.add(sx - cam, (int)(f.shipPrevY + (f.shipY - f.shipPrevY) * a), (int)f.shipW, (int)f.shipH);
+        FrameSnapshot.Layer bombs = f.bombs;
+        for (int i = 0; i < bombs.count; i++)
+            dirty.add((int)bombs.lerpX(i, a) - cam, (int)bombs.lerpY(i, a), (int)bombs.w[i], (int)bombs.h[i]);
+        // 导弹图片旋转后以中心对齐，边长不超过 w + h
+        FrameSnapshot.Layer ms = f.missiles;
+        for (int i = 0; i < ms.count; i++){
+            int mx = (int)Math.round(ms.lerpX(i, a)), my = (int)Math.round(ms.lerpY(i, a));
+            int mw = (int)Math.round(ms.w[i]), mh = (int)Math.round(ms.h[i]), half = (mw + mh) / 2 + 1;
+            dirty.add(mx + mw/2 - half - cam, my + mh/2 - half, half * 2, half * 2);
+        }
+        FrameSnapshot.Layer subs = f.subs;
+        for (int i = 0; i < subs.count; i++)
+            dirty.add((int)subs.lerpX(i, a) - cam, (int)subs.lerpY(i, a), (int)subs.w[i], (int)subs.h[i]);
+        FrameSnapshot.Layer exps = f.explosions;
+        for (int i = 0; i < exps.count; i++){
+            int ew = (int)exps.w[i], eh = (int)exps.h[i], r = ew/2;
+            dirty.add((int)exps.x[i] + ew/2 - r - cam, (int)exps.y[i] + eh/2 - r, r*2, r*2);
+        }
+        hud.update(f.score, f.shipX, bombs.count, subs.count, exps.count, weapon, f.missileCooldown, stats, nowNanos);
+        if (hud.isDirty()) dirty.add(0, 0, w, HudLayer.HEIGHT);
+        if (overlayVisible && metrics != null) dirty.add(OVERLAY_X, OVERLAY_Y, MetricsOverlay.WIDTH, MetricsOverlay.HEIGHT);
+        return dirty.finish() ? null : dirty;
+    }
+
+    // 镜头左边缘的世界 x：军舰（插值位置 shipX）居中，限制在世界范围内；世界不比视口宽时为 0
+    static int camera(FrameSnapshot f, int shipX, int viewW){
+        if (f.worldWidth <= viewW) return 0;
+        int c = shipX + (int)f.shipW/2 - viewW/2;
+        return Math.max(0, Math.min(c, f.worldWidth - viewW));
+    }
+
+    // 换入后台加载完成的资源，返回是否换入
+    private boolean swapAssets(){
+        Assets pending = pendingAssets;
+        if (pending == null) return false;
+        pendingAssets = null;
+        assets = pending;
+        sprites.clear();
+        staticLayer = null;
+        assetsReady = true;
+        return true;
+    }
+
+    /**
+     * 绘制一帧：w×h 为绘制区域尺寸，weapon 为当前武器（1=bomb, 2=missile），nowNanos 为调用时刻（System.nanoTime），用于插值、帧时间与绘制耗时统计。
+     * 只绘制与 g2 裁剪区相交的实体；nowNanos 与上一次调用相同时视为同一帧的另一块区域，不重复计帧。
+     */
+    public void render(Graphics2D g2, int w, int h, FrameSnapshot f, int weapon, long nowNanos){
+        boolean newFrame = nowNanos != frameNanos;
+        frameNanos = nowNanos;
+        long begin = newFrame ? nowNanos : System.nanoTime();
+        if (newFrame) stats.frame(nowNanos);
+        // 被动路径由 damage 换入资源（保证与脏区一致），其余情况在这里换入
+        if (nowNanos != damageNanos) swapAssets();
+        // 抗锯齿
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        // 背景与海面：静态层，尺寸变化时重新烘焙
+        if (staticLayer == null || staticLayer.getWidth() != w || staticLayer.getHeight() != h) bakeStatic(w, h);
+        g2.drawImage(staticLayer, 0, 0, null);
+
+        // 在上一 tick 与本 tick 的状态之间插值，绘制不受模拟步长与帧率差异影响
+        double a = f.alpha(nowNanos);
+
+        // 实体按镜头平移（世界坐标），裁剪区转换到世界坐标后用于剔除视口外的实体
+        int sx = (int)(f.shipPrevX + (f.shipX - f.shipPrevX) * a);
+        int cam = camera(f, sx, w);
+        g2.translate(-cam, 0);
+        Rectangle clip = g2.getClipBounds();
+        if (clip == null){ view.setBounds(cam, 0, w, h); clip = view; }
+
+        // 绘制船（图片或矢量）
+        int sy = (int)(f.shipPrevY + (f.shipY - f.shipPrevY) * a);
+        int sw = (int)f.shipW, sh = (int)f.shipH;
+        // 选择船帧：基于船的朝向（facing），-1 -> ship[0], +1 -> ship[1]
+        if (!outside(clip, sx, sy, sw, sh)){
+            BufferedImage frame = sprites.scaled(assets.ship[f.shipFacing < 0 ? 0 : 1], sw, sh);
+            if (frame != null){
+                g2.drawImage(frame, sx, sy, null);
+            } else {
+                g2.setColor(new Color(80, 80, 80));
+                g2.fillRect(sx, sy, sw, sh);
+                g2.setColor(new Color(200, 200, 200));
+                g2.fillRect(sx + sw/4, sy + 4, sw/2, sh/3);
+            }
+        }
+
+        // 绘制炸弹（图片或回退） —— 在潜艇与爆炸前绘制，这样能看到炸弹
+        FrameSnapshot.Layer bombs = f.bombs;
+        for (int i = 0; i < bombs.count; i++){
+            int bx = (int)bombs.lerpX(i, a), by = (int)bombs.lerpY(i, a), bw = (int)bombs.w[i], bh = (int)bombs.h[i];
+            if (outside(clip, bx, by, bw, bh)) continue;
+            BufferedImage img = sprites.scaled(assets.bomb, bw, bh);
+            if (img != null){
+                g2.drawImage(img, bx, by, null);
+            } else {
+                g2.setColor(new Color(180, 30, 30));
+                g2.fillOval(bx, by, bw, bh);
+            }
+        }
+
+        // 绘制导弹（在炸弹之后，这样显眼）；导弹包围盒按四舍五入取整，图片按角度桶预旋转
+        FrameSnapshot.Layer ms = f.missiles;
+        for (int i = 0; i < ms.count; i++){
+            int mx = (int)Math.round(ms.lerpX(i, a)), my = (int)Math.round(ms.lerpY(i, a));
+            int mw = (int)Math.round(ms.w[i]), mh = (int)Math.round(ms.h[i]);
+            int half = (mw + mh) / 2 + 1;
+            if (outside(clip, mx + mw/2 - half, my + mh/2 - half, half * 2, half * 2)) continue;
+            BufferedImage img = sprites.rotated(assets.missile, mw, mh, Missile.angleOf(ms.vx[i], ms.vy[i]));
+            if (img != null){
+                // 旋转后的图片以导弹中心对齐
+                g2.drawImage(img, (int)Math.round(mx + mw/2.0 - img.getWidth()/2.0),
+                        (int)Math.round(my + mh/2.0 - img.getHeight()/2.0), null);
+            } else {
+                g2.setColor(new Color(220, 200, 40));
+                g2.fillRect(mx, my, mw, mh);
+            }
+        }
+
+        // 绘制潜艇（根据类型选择图片或回退）
+        FrameSnapshot.Layer subs = f.subs;
+        for (int i = 0; i < subs.count; i++){
+            int bx = (int)subs.lerpX(i, a), by = (int)subs.lerpY(i, a), bw = (int)subs.w[i], bh = (int)subs.h[i];
+            if (outside(clip, bx, by, bw, bh)) continue;
+            boolean red = subs.tag[i] == Submarine.Type.RED.ordinal();
+            // 变体选择：用实体 id 保持稳定但多样（视图对象会被池化复用，不能用 identityHashCode）
+            int variant = subs.id[i] % 2; // 0 or 1
+            // RED 使用 q2 (idx1) 或 r1 (idx2)；BLACK 使用 h2 (idx3) 或 q1 (idx0)
+            BufferedImage src = red ? assets.sub[1 + variant] : assets.sub[variant == 0 ? 3 : 0];
+            BufferedImage img = sprites.scaled(src, bw, bh);
+            if (img != null){
+                g2.drawImage(img, bx, by, null);
+            } else {
+                // 回退绘制：红色或黑色椭圆以示区分
+                if (red) g2.setColor(new Color(200, 40, 40));
+                else g2.setColor(new Color(30, 30, 30));
+                g2.fillOval(bx, by, bw, bh);
+            }
+        }
+
+        // 绘制爆炸（如果有多帧图片，按时间选择）
+        FrameSnapshot.Layer exps = f.explosions;
+        BufferedImage[] eframes = assets.explosion;
+        for (int i = 0; i < exps.count; i++){
+            int ew = (int)exps.w[i], eh = (int)exps.h[i];
+            int cx = (int)exps.x[i] + ew/2;
+            int cy = (int)exps.y[i] + eh/2;
+            int r = ew/2;
+            if (outside(clip, cx - r, cy - r, r*2, r*2)) continue;
+            BufferedImage eimg = sprites.scaled(eframes[(int)((System.currentTimeMillis()/120) % eframes.length)], r*2, r*2);
+            if (eimg != null){
+                g2.drawImage(eimg, cx - r, cy - r, null);
+            } else {
+                g2.setColor(new Color(255, 140, 0, 120));
+                g2.fillOval(cx - r, cy - r, r*2, r*2);
+                g2.setColor(new Color(255, 215, 0, 160));
+                g2.drawOval(cx - r, cy - r, r*2, r*2);
+            }
+        }
+
+        g2.translate(cam, 0);
+
+        // UI：分数与状态（来自快照，值变化时才重新栅格化）
+        hud.update(f.score, f.shipX, bombs.count, subs.count, exps.count, weapon, f.missileCooldown, stats, nowNanos);
+        hud.draw(g2, w);
+
+        // 性能叠加层（F3）与本帧绘制耗时
+        TickMetrics m = metrics;
+        if (m != null){
+            if (overlayVisible) overlay.draw(g2, m, OVERLAY_X, OVERLAY_Y);
+            long end = System.nanoTime();
+            m.record(TickMetrics.Phase.RENDER, end - begin, end);
+            if (newFrame && f.inputNanos != 0 && f.inputNanos != photonInputNanos){
+                m.record(TickMetrics.Phase.INPUT_PHOTON, end - f.inputNanos, end);
+                photonInputNanos = f.inputNanos;
+            }
+        }
+
+        // 启动计时：第一帧，以及资源加载完成后的第一帧
+        if (newFrame && stats.frames() == 1) StartupMetrics.mark("first-frame");
+        if (assetsReady && !assetsFrameMarked){
+            StartupMetrics.mark("first-frame-assets");
+            assetsFrameMarked = true;
+        }
+    }
+
+    // 矩形是否完全在裁剪区之外（clip 为 null 表示不裁剪）
+    private static boolean outside(Rectangle clip, int x, int y, int w, int h){
+        return clip != null && (x + w < clip.x || y + h < clip.y || x > clip.x + clip.width || y > clip.y + clip.height);
+    }
+
+    private void bakeStatic(int w, int h){
+        staticLayer = sprites.createCompatible(Math.max(1, w), Math.max(1, h), Transparency.OPAQUE);
+        Graphics2D g = staticLayer.createGraphics();
+        // 背景：优先图片，否则绘制天空色
+        if (assets.background != null){
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(assets.background, 0, 0, w, h, null);
+        } else {
+            g.setColor(SKY);
+            g.fillRect(0, 0, w, h);
+        }
+        // 海面（保持原有色块覆盖，以确保潜艇只能在海里）
+        g.setColor(SEA);
+        g.fillRect(0, seaTop, w, h - seaTop);
+        g.dispose();
+    }
+}
@@ -0,0 +1,63 @@
+package ui;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * 图集：把多张源图按行（shelf）打包进一张屏幕兼容格式的图片，各源图以子图（共享像素）形式取出。
+ * 打包前按高度降序排列，行宽上限为 MAX_WIDTH 与最宽图片中的较大者；图片之间留 1 像素间隔防止采样串色。
+ */
+final class SpriteAtlas {
+    private static final int MAX_WIDTH = 1024;
+    private static final int PAD = 1;
+
+    private final BufferedImage image;
+    private final BufferedImage[] regions;
+
+    // images 中为 null 的项（加载失败）不参与打包，其 region 为 null
+    SpriteAtlas(BufferedImage[] images, GraphicsConfiguration gc){
+        int n = images.length;
+        Integer[] order = new Integer[n];
+        int maxW = 0;
+        for (int i = 0; i < n; i++){
+            order[i] = i;
+            if (images[i] != null) maxW = Math.max(maxW, images[i].getWidth());
+        }
+        java.util.Arrays.sort(order, (p, q) -> Integer.compare(height(images[q]), height(images[p])));
+
+        // 第一轮：计算位置
+        int rowLimit = Math.max(MAX_WIDTH, maxW);
+        int[] px = new int[n], py = new int[n];
+        int x = 0, y = 0, rowH = 0, width = 0;
+        for (int k = 0; k < n; k++){
+            BufferedImage img = images[order[k]];
+            if (img == null) continue;
+            if (x > 0 && x + img.getWidth() > rowLimit){ y += rowH + PAD; x = 0; rowH = 0; }
+            px[order[k]] = x; py[order[k]] = y;
+            x += img.getWidth() + PAD;
+            rowH = Math.max(rowH, img.getHeight());
+            width = Math.max(width, x - PAD);
+        }
+        int height = y + rowH;
+
+        regions = new BufferedImage[n];
+        if (width <= 0 || height <= 0){ image = null; return; }
+        // 第二轮：绘制到图集并取子图
+        image = gc != null ? gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = image.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        for (int i = 0; i < n; i++){
+            BufferedImage img = images[i];
+            if (img == null) continue;
+            g.drawImage(img, px[i], py[i], null);
+            regions[i] = image.getSubimage(px[i], py[i], img.getWidth(), img.getHeight());
+        }
+        g.dispose();
+    }
+
+    private static int height(BufferedImage img){ return img == null ? -1 : img.getHeight(); }
+
+    BufferedImage image(){ return image; }
+    BufferedImage region(int i){ return regions[i]; }
+}
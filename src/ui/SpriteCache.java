@@ -0,0 +1,124 @@
+package ui;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * 精灵缓存：把源图一次性转换为与屏幕兼容的格式，并预缩放到实体尺寸。
+ * 逐帧绘制时只做 1:1 的 drawImage（无缩放、无变换），兼容格式的图片由 Java2D 自动缓存到显存（managed image）。
+ * 导弹等需要旋转的精灵按角度分桶预先旋转，绘制时取最近的桶。
+ *
+ * 同一源图的不同尺寸/角度各占一个条目，按 (源图, 尺寸, 角度桶) 散列查找（逐帧查找不分配）；
+ * 条目数超过上限时整体清空重建，防止窗口连续缩放时无限增长。仅供单一渲染线程使用。
+ */
+public final class SpriteCache {
+    public static final int ANGLE_BUCKETS = 64;
+    private static final int MAX_ENTRIES = 256;
+
+    private final GraphicsConfiguration gc; // null 表示无屏幕（无头渲染），使用预乘 ARGB
+    private final Entry[] table = new Entry[MAX_ENTRIES * 2]; // 链地址散列表
+    private int count = 0;
+
+    // 单个缓存条目：源图 + 目标尺寸 +（可选）角度桶
+    private static final class Entry {
+        BufferedImage src;
+        int w, h, bucket; // bucket = -1 表示不旋转
+        BufferedImage img;
+        Entry next;
+    }
+
+    public SpriteCache(GraphicsConfiguration gc){ this.gc = gc; }
+
+    // 源图缩放到 w×h 的兼容图片；src 为 null 或尺寸非正时返回 null
+    public BufferedImage scaled(BufferedImage src, int w, int h){
+        if (src == null || w <= 0 || h <= 0) return null;
+        Entry e = find(src, w, h, -1);
+        if (e != null) return e.img;
+        BufferedImage img = createCompatible(w, h);
+        Graphics2D g = img.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(src, 0, 0, w, h, null);
+        g.dispose();
+        return put(src, w, h, -1, img);
+    }
+
+    /**
+     * 源图缩放到 w×h 后按 angle（弧度）所在的角度桶旋转的兼容图片。
+     * 返回图片的尺寸为旋转后的外接矩形，绘制时应以其中心对齐实体中心。
+     */
+    public BufferedImage rotated(BufferedImage src, int w, int h, double angle){
+        if (src == null || w <= 0 || h <= 0) return null;
+        int bucket = bucketOf(angle);
+        Entry e = find(src, w, h, bucket);
+        if (e != null) return e.img;
+        double a = bucket * (2 * Math.PI / ANGLE_BUCKETS);
+        double cos = Math.abs(Math.cos(a)), sin = Math.abs(Math.sin(a));
+        int rw = (int)Math.ceil(w * cos + h * sin), rh = (int)Math.ceil(w * sin + h * cos);
+        BufferedImage img = createCompatible(Math.max(1, rw), Math.max(1, rh));
+        Graphics2D g = img.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.rotate(a, rw / 2.0, rh / 2.0);
+        g.drawImage(src, (int)Math.round((rw - w) / 2.0), (int)Math.round((rh - h) / 2.0), w, h, null);
+        g.dispose();
+        return put(src, w, h, bucket, img);
+    }
+
+    // 角度（弧度）对应的桶号，0..ANGLE_BUCKETS-1
+    public static int bucketOf(double angle){
+        double turns = angle / (2 * Math.PI);
+        int b = (int)Math.round((turns - Math.floor(turns)) * ANGLE_BUCKETS);
+        return b == ANGLE_BUCKETS ? 0 : b;
+    }
+
+    // 丢弃全部缓存（显示配置变化时使用）
+    public void clear(){
+        Arrays.fill(table, null);
+        count = 0;
+    }
+
+    public int size(){ return count; }
+
+    BufferedImage createCompatible(int w, int h){ return createCompatible(w, h, Transparency.TRANSLUCENT); }
+
+    // 与屏幕兼容的图片；无屏幕时不透明图片用 RGB、其余用预乘 ARGB
+    BufferedImage createCompatible(int w, int h, int transparency){
+        if (gc != null) return gc.createCompatibleImage(w, h, transparency);
+        return new BufferedImage(w, h, transparency == Transparency.OPAQUE
+                ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    private int slot(BufferedImage src, int w, int h, int bucket){
+        int k = System.identityHashCode(src);
+        k = k * 31 + w;
+        k = k * 31 + h;
+        k = k * 31 + bucket;
+        k ^= k >>> 16;
+        return (k & 0x7fffffff) % table.length;
+    }
+
+    private Entry find(BufferedImage src, int w, int h, int bucket){
+        for (Entry e = table[slot(src, w, h, bucket)]; e != null; e = e.next){
+            if (e.src == src && e.w == w && e.h == h && e.bucket == bucket) return e;
+        }
+        return null;
+    }
+
+    private BufferedImage put(BufferedImage src, int w, int h, int bucket, BufferedImage img){
+        if (count >= MAX_ENTRIES) clear();
+        Entry e = new Entry();
+        e.src = src; e.w = w; e.h = h; e.bucket = bucket; e.img = img;
+        int k = slot(src, w, h, bucket);
+        e.next = table[k];
+        table[k] = e;
+        count++;
+        return img;
+    }
+}
@@ -0,0 +1,55 @@
+package ui;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 启动阶段计时：记录各阶段完成时刻（距 JVM 启动的毫秒数，来自 RuntimeMXBean 的 uptime），
+ * 从 JVM 启动一直到第一帧，用于跟踪各版本的冷启动延迟。
+ * 同一阶段只记录第一次；-Dnavalwar.startup=true 时在 "first-frame-assets" 阶段打印汇总。
+ */
+public final class StartupMetrics {
+    private static final long T0_NANOS = System.nanoTime();
+    private static final long UPTIME_AT_T0_MS = ManagementFactory.getRuntimeMXBean().getUptime();
+    private static final List<String> phases = new ArrayList<>();
+    private static final List<Double> times = new ArrayList<>();
+
+    private StartupMetrics(){}
+
+    // 当前时刻距 JVM 启动的毫秒数
+    public static double sinceJvmStartMs(){
+        return UPTIME_AT_T0_MS + (System.nanoTime() - T0_NANOS) / 1e6;
+    }
+
+    // 记录阶段完成时刻（重复记录同名阶段时忽略）
+    public static void mark(String phase){
+        double t = sinceJvmStartMs();
+        boolean done;
+        synchronized (StartupMetrics.class){
+            if (phases.contains(phase)) return;
+            phases.add(phase);
+            times.add(t);
+            done = "first-frame-assets".equals(phase);
+        }
+        if (done && Boolean.getBoolean("navalwar.startup")) System.out.println(report());
+    }
+
+    // 某阶段的时刻（ms），未记录返回 -1
+    public static synchronized double get(String phase){
+        int i = phases.indexOf(phase);
+        return i < 0 ? -1 : times.get(i);
+    }
+
+    // 汇总：每个阶段的时刻与距上一阶段的间隔
+    public static synchronized String report(){
+        StringBuilder sb = new StringBuilder("startup (ms since JVM start):");
+        double prev = 0;
+        for (int i = 0; i < phases.size(); i++){
+            double t = times.get(i);
+            sb.append(String.format("%n  %-20s %8.1f  (+%.1f)", phases.get(i), t, t - prev));
+            prev = t;
+        }
+        return sb.toString();
+    }
+}